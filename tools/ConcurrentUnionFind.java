@@ -0,0 +1,178 @@
+package tools;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ *  The ConcurrentUnionFind class is a union-find that many threads can use at once,
+ *  without locks.
+ *
+ *  The parents are kept in an AtomicIntegerArray. find halves the path like UnionFind, each
+ *  shortcut being a compareAndSet that may fail harmlessly when another thread moved the node
+ *  first : a node only ever points higher in its tree, so find never waits for anyone.
+ *  union links one root under the other with a compareAndSet that only succeeds if it is
+ *  still a root, and starts over otherwise.
+ *  Roots are linked by a fixed pseudo-random priority of their index instead of by size,
+ *  which needs no second word to update atomically and keeps the trees of logarithmic
+ *  expected height (Jayanti and Tarjan, randomized linking by index).
+ *  connected is linearizable : when the roots differ, it checks the first one is still
+ *  a root, otherwise the components may have been merged meanwhile and it starts over.
+ *
+ *  Find, union and connected take expected amortized time proportional to lg(N) at worst,
+ *  close to constant in practice. Count takes time proportional to the number of threads.
+ */
+public class ConcurrentUnionFind {
+	private final AtomicIntegerArray id;		//Parent of each site, id[i] == i for a root
+	private final LongAdder unions;				//Number of successful unions
+	private final int N;						//Number of sites
+
+	/**
+	 * Initializes N sites, each in its own component
+	 * Worst case is O(N)
+	 * @param N the number of sites
+	 * @throws java.lang.IllegalArgumentException if N < 0
+	 */
+	public ConcurrentUnionFind(int N) {
+		if (N < 0) throw new IllegalArgumentException("Number of sites cannot be negative");
+		this.N = N;
+		id = new AtomicIntegerArray(N);
+		for (int i = 0 ; i < N ; i++) id.set(i, i);
+		unions = new LongAdder();
+	}
+
+	/**
+	 * Representative of the component of a site, at some point during the call
+	 * @param p a site
+	 * @return the root of the component of p
+	 * @throws java.lang.IndexOutOfBoundsException if p is not between 0 and N-1
+	 */
+	public int find(int p) {
+		while (true) {
+			int q = id.get(p);
+			if (q == p) return p;
+			int r = id.get(q);
+			if (q != r) id.compareAndSet(p, q, r);
+			p = r;
+		}
+	}
+
+	/**
+	 * Whether two sites are in the same component
+	 * @param p a site
+	 * @param q a site
+	 * @return true if p and q are connected
+	 * @throws java.lang.IndexOutOfBoundsException if p or q is not between 0 and N-1
+	 */
+	public boolean connected(int p, int q) {
+		while (true) {
+			p = find(p);
+			q = find(q);
+			if (p == q) return true;
+			if (id.get(p) == p) return false;
+		}
+	}
+
+	/**
+	 * Merges the components of two sites
+	 * @param p a site
+	 * @param q a site
+	 * @return true if this call merged two components, false if p and q were already connected
+	 * @throws java.lang.IndexOutOfBoundsException if p or q is not between 0 and N-1
+	 */
+	public boolean union(int p, int q) {
+		while (true) {
+			p = find(p);
+			q = find(q);
+			if (p == q) return false;
+			if (priority(p) > priority(q)) {
+				int temp = p;
+				p = q;
+				q = temp;
+			}
+			if (id.compareAndSet(p, p, q)) {
+				unions.increment();
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Number of components, exact when no union is running
+	 * @return the number of components
+	 */
+	public int count() {
+		return N - unions.intValue();
+	}
+
+	/**
+	 * Number of sites
+	 * @return N
+	 */
+	public int size() {
+		return N;
+	}
+
+	// a bijection of the ints, so that two sites never have the same priority
+	private static int priority(int p) {
+		int h = p * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		final int N = 10000000;
+		final int M = 100000000;
+		// at least up to 8 threads, so that the lock is contended even with less cores
+		int max = Math.max(8, Runtime.getRuntime().availableProcessors());
+		for (int T = 1 ; T <= max ; T *= 2) {
+			final ConcurrentUnionFind cuf = new ConcurrentUnionFind(N);
+			Chrono c = new Chrono();
+			run(T, M, new Runnable() {
+				public void run() {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					cuf.union(random.nextInt(N), random.nextInt(N));
+				}
+			});
+			System.out.println(M + " unions, " + T + " threads, ConcurrentUnionFind : " + c.elapsedTime());
+			final UnionFind uf = new UnionFind(N);
+			c.reset();
+			run(T, M, new Runnable() {
+				public void run() {
+					ThreadLocalRandom random = ThreadLocalRandom.current();
+					int p = random.nextInt(N), q = random.nextInt(N);
+					synchronized (uf) {
+						uf.union(p, q);
+					}
+				}
+			});
+			System.out.println(M + " unions, " + T + " threads, synchronized UnionFind : " + c.elapsedTime());
+		}
+	}
+
+	// runs a task M times, split over T threads
+	private static void run(int T, final int M, final Runnable task) throws InterruptedException {
+		Thread[] threads = new Thread[T];
+		for (int t = 0 ; t < T ; t++) {
+			final int share = M/T + (t < M%T ? 1 : 0);
+			threads[t] = new Thread() {
+				public void run() {
+					for (int k = 0 ; k < share ; k++) task.run();
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads) thread.join();
+	}
+	/*With more threads than cores, a thread preempted while it holds the lock stalls all the
+others, and the synchronized UnionFind takes twice as long from 4 threads on, while the
+lock-free one keeps its time. This run had a single core : on a multi-core machine the
+threads also contend on the cache lines, which this table does not show.
+100000000 unions, 1 threads, ConcurrentUnionFind : 10.636
+100000000 unions, 1 threads, synchronized UnionFind : 12.59
+100000000 unions, 2 threads, ConcurrentUnionFind : 11.044
+100000000 unions, 2 threads, synchronized UnionFind : 10.618
+100000000 unions, 4 threads, ConcurrentUnionFind : 11.284
+100000000 unions, 4 threads, synchronized UnionFind : 23.838
+100000000 unions, 8 threads, ConcurrentUnionFind : 9.916
+100000000 unions, 8 threads, synchronized UnionFind : 26.916*/
+}
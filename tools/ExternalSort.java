@@ -0,0 +1,288 @@
+package tools;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ *  The ExternalSort class sorts the lines of a text file that does not fit in memory.
+ *
+ *  The first pass reads the input by chunks of about runSize characters, sorts each chunk
+ *  in memory with Quick and writes it to a temporary file, a sorted run.
+ *  Each following pass merges the runs by groups of at most fanIn, through an
+ *  IndexMultiwayMinPQ holding the current line of every run of the group, until
+ *  fanIn runs or less remain ; those are merged directly into the output file.
+ *  With R runs, there are 1 + ceil(log-fanIn(R)) passes over the data.
+ *
+ *  Lines are compared with String.compareTo and written back with '\n' endings,
+ *  files are read and written in UTF-8 through buffers of bufferSize bytes.
+ *  The bytes read and written during each pass are kept and can be queried
+ *  after a sort.
+ */
+public class ExternalSort {
+	private final long runSize;			//Approximate number of characters of a run sorted in memory
+	private final int fanIn;			//Maximum number of runs merged at once
+	private final File tempDir;			//Directory of the runs, null for the default temporary directory
+	private final int bufferSize;		//Size of the read and write buffers
+	private final List<long[]> passes;	//Bytes read and written by each pass of the last sort
+
+	/*
+	 * Streams counting the bytes going through them
+	 */
+	private static class CountingInput extends FilterInputStream {
+		private long count;
+
+		public CountingInput(InputStream in) {
+			super(in);
+		}
+
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) count++;
+			return b;
+		}
+
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) count += n;
+			return n;
+		}
+	}
+
+	private static class CountingOutput extends FilterOutputStream {
+		private long count;
+
+		public CountingOutput(OutputStream out) {
+			super(out);
+		}
+
+		public void write(int b) throws IOException {
+			out.write(b);
+			count++;
+		}
+
+		public void write(byte[] b, int off, int len) throws IOException {
+			out.write(b, off, len);
+			count += len;
+		}
+	}
+
+	/**
+	 * Initializes an external sort
+	 * @param runSize approximate number of characters of the chunks sorted in memory,
+	 * the heap needs a few times more bytes than that
+	 * @param fanIn maximum number of runs merged at once
+	 * @param tempDir directory for the temporary runs, null for the system default
+	 * @param bufferSize size in bytes of the read and write buffers
+	 * @throws java.lang.IllegalArgumentException if runSize or bufferSize is not positive
+	 * @throws java.lang.IllegalArgumentException if fanIn < 2
+	 */
+	public ExternalSort(long runSize, int fanIn, File tempDir, int bufferSize) {
+		if (runSize <= 0) throw new IllegalArgumentException("Run size should be positive");
+		if (fanIn < 2) throw new IllegalArgumentException("Fan-in should be 2 or over");
+		if (bufferSize <= 0) throw new IllegalArgumentException("Buffer size should be positive");
+		this.runSize = runSize;
+		this.fanIn = fanIn;
+		this.tempDir = tempDir;
+		this.bufferSize = bufferSize;
+		passes = new ArrayList<long[]>();
+	}
+
+	/**
+	 * Initializes an external sort with 1MB buffers in the default temporary directory
+	 * @param runSize approximate number of characters of the chunks sorted in memory
+	 * @param fanIn maximum number of runs merged at once
+	 */
+	public ExternalSort(long runSize, int fanIn) {
+		this(runSize, fanIn, null, 1 << 20);
+	}
+
+	/**
+	 * Sorts the lines of a file into another file
+	 * @param in the file to sort
+	 * @param out the file receiving the sorted lines, may be the same as in
+	 * @throws java.io.IOException if a file cannot be read or written
+	 */
+	public void sort(File in, File out) throws IOException {
+		passes.clear();
+		List<File> runs = makeRuns(in);
+		List<File> merged = new ArrayList<File>();
+		try {
+			while (runs.size() > fanIn) {
+				merged = new ArrayList<File>();
+				long[] pass = new long[2];
+				for (int i = 0 ; i < runs.size() ; i += fanIn) {
+					List<File> group = runs.subList(i, Math.min(i + fanIn, runs.size()));
+					File run = File.createTempFile("run", ".txt", tempDir);
+					merged.add(run);
+					merge(group, run, pass);
+					for (File f : group) f.delete();
+				}
+				passes.add(pass);
+				runs = merged;
+			}
+			long[] pass = new long[2];
+			merge(runs, out, pass);
+			passes.add(pass);
+		} finally {
+			for (File f : runs) f.delete();
+			for (File f : merged) f.delete();
+		}
+	}
+
+	/**
+	 * Number of passes over the data during the last sort, the first one creating the runs
+	 * @return the number of passes
+	 */
+	public int passes() {
+		return passes.size();
+	}
+
+	/**
+	 * Bytes read during a pass of the last sort
+	 * @param pass a pass number, from 0 to passes()-1
+	 * @throws java.lang.IndexOutOfBoundsException if there was no such pass
+	 * @return the number of bytes read
+	 */
+	public long bytesRead(int pass) {
+		return passes.get(pass)[0];
+	}
+
+	/**
+	 * Bytes written during a pass of the last sort
+	 * @param pass a pass number, from 0 to passes()-1
+	 * @throws java.lang.IndexOutOfBoundsException if there was no such pass
+	 * @return the number of bytes written
+	 */
+	public long bytesWritten(int pass) {
+		return passes.get(pass)[1];
+	}
+
+	/*
+	 * First pass : cuts the input into sorted runs
+	 */
+	private List<File> makeRuns(File in) throws IOException {
+		List<File> runs = new ArrayList<File>();
+		long[] pass = new long[2];
+		CountingInput counter = new CountingInput(new FileInputStream(in));
+		BufferedReader reader = new BufferedReader(new InputStreamReader(counter, StandardCharsets.UTF_8), bufferSize);
+		try {
+			List<String> chunk = new ArrayList<String>();
+			String line = reader.readLine();
+			while (line != null) {
+				long size = 0;
+				while (line != null && size < runSize) {
+					chunk.add(line);
+					size += line.length() + 1;
+					line = reader.readLine();
+				}
+				String[] lines = chunk.toArray(new String[chunk.size()]);
+				chunk.clear();
+				Quick.sort(lines);
+				File run = File.createTempFile("run", ".txt", tempDir);
+				runs.add(run);
+				pass[1] += write(lines, run);
+			}
+		} catch (IOException e) {
+			for (File f : runs) f.delete();
+			throw e;
+		} finally {
+			reader.close();
+		}
+		pass[0] = counter.count;
+		passes.add(pass);
+		return runs;
+	}
+
+	private long write(String[] lines, File f) throws IOException {
+		CountingOutput counter = new CountingOutput(new FileOutputStream(f));
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), bufferSize);
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+		return counter.count;
+	}
+
+	/*
+	 * Merges sorted runs into a file, adding the bytes read and written to pass
+	 */
+	private void merge(List<File> runs, File out, long[] pass) throws IOException {
+		int k = runs.size();
+		CountingInput[] counters = new CountingInput[k];
+		BufferedReader[] readers = new BufferedReader[k];
+		CountingOutput counter = null;
+		BufferedWriter writer = null;
+		try {
+			IndexMultiwayMinPQ<String> pq = new IndexMultiwayMinPQ<String>(k, 4);
+			for (int i = 0 ; i < k ; i++) {
+				counters[i] = new CountingInput(new FileInputStream(runs.get(i)));
+				readers[i] = new BufferedReader(new InputStreamReader(counters[i], StandardCharsets.UTF_8), bufferSize);
+				String line = readers[i].readLine();
+				if (line != null) pq.insert(i, line);
+			}
+			counter = new CountingOutput(new FileOutputStream(out));
+			writer = new BufferedWriter(new OutputStreamWriter(counter, StandardCharsets.UTF_8), bufferSize);
+			while (!pq.isEmpty()) {
+				int i = pq.minIndex();
+				writer.write(pq.minKey());
+				writer.write('\n');
+				String line = readers[i].readLine();
+				if (line == null) pq.delMin();
+				else pq.changeKey(i, line);
+			}
+		} finally {
+			for (int i = 0 ; i < k ; i++) {
+				if (readers[i] != null) {
+					readers[i].close();
+					pass[0] += counters[i].count;
+				}
+			}
+			if (writer != null) {
+				writer.close();
+				pass[1] += counter.count;
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int N = 2000000;
+		File in = File.createTempFile("unsorted", ".txt");
+		File out = File.createTempFile("sorted", ".txt");
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(in), StandardCharsets.UTF_8));
+		for (int i = 0 ; i < N ; i++) {
+			writer.write(Long.toString((long) (Math.random()*Long.MAX_VALUE), 36));
+			writer.write('\n');
+		}
+		writer.close();
+		ExternalSort sorter = new ExternalSort(8 << 20, 4);
+		Chrono c = new Chrono();
+		sorter.sort(in, out);
+		System.out.println(N + " lines, " + in.length() + " bytes sorted in : " + c.elapsedTime());
+		for (int p = 0 ; p < sorter.passes() ; p++) {
+			System.out.println("pass " + p + " : " + sorter.bytesRead(p) + " bytes read, "
+					+ sorter.bytesWritten(p) + " bytes written");
+		}
+		in.delete();
+		out.delete();
+	}
+	/*2000000 lines, 26943291 bytes sorted in : 5.074
+pass 0 : 26943291 bytes read, 26943291 bytes written
+pass 1 : 26943291 bytes read, 26943291 bytes written*/
+}
@@ -0,0 +1,221 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ *  The IncrementalSort class keeps a growing collection of keys that can be read
+ *  in sorted order at any time.
+ *
+ *  Inserted keys go to a buffer. When the buffer is full, or when the keys are read,
+ *  it is sorted with Quick and becomes a sorted run. Runs are kept on a stack whose
+ *  lengths at least halve from bottom to top : when a new run breaks that rule, the two
+ *  top runs are merged, as a binary counter carries. There are so less than lg(N) runs
+ *  and each key takes part in O(lg(N)) merges over its lifetime, like in a merge sort,
+ *  however often the keys are read.
+ *  The iterator merges the runs on the fly through an IndexMultiwayMinPQ, so keys
+ *  already sorted are never sorted again and reading only the smallest keys is cheap.
+ *
+ *  Insert takes amortized time proportional to lg(N), iterator() takes time proportional
+ *  to the size of the buffer times its log, and each next() to lg(lg(N)).
+ *  Size and isEmpty take constant time.
+ */
+public class IncrementalSort<Key> implements Iterable<Key> {
+	private static final int BATCH = 1024;		//Size of the insertion buffer
+	private final Comparator<Key> comp;			//Comparator over the keys
+	private final List<Key[]> runs;				//Sorted runs, from the longest to the shortest
+	private Key[] buffer;						//Keys not sorted yet
+	private int pending;						//Number of keys in the buffer
+	private int n;								//Number of keys
+	private int modCount;						//Changes since creation, for the iterators
+
+	/**
+	 * Initializes an empty collection of Comparable keys
+	 */
+	public IncrementalSort() {
+		this(null);
+	}
+
+	/**
+	 * Initializes an empty collection ordered by a Comparator
+	 * @param C a Comparator over the keys, null for the natural order
+	 */
+	public IncrementalSort(Comparator<Key> C) {
+		comp = C == null ? new MyComparator() : C;
+		runs = new ArrayList<Key[]>();
+		buffer = (Key[]) new Object[BATCH];
+	}
+
+	/**
+	 * Whether the collection is empty
+	 * Worst case is O(1)
+	 * @return true if there is no key
+	 */
+	public boolean isEmpty() {
+		return n == 0;
+	}
+
+	/**
+	 * Number of keys
+	 * Worst case is O(1)
+	 * @return the number of keys inserted
+	 */
+	public int size() {
+		return n;
+	}
+
+	/**
+	 * Inserts a key
+	 * Amortized cost is O(log(n))
+	 * @param key the key to insert
+	 */
+	public void insert(Key key) {
+		if (pending == BATCH) flush();
+		buffer[pending++] = key;
+		n++;
+		modCount++;
+	}
+
+	/**
+	 * Removes all the keys
+	 */
+	public void clear() {
+		runs.clear();
+		for (int i = 0 ; i < pending ; i++) buffer[i] = null;
+		pending = 0;
+		n = 0;
+		modCount++;
+	}
+
+	/*
+	 * Sorts the buffer into a new run, then merges the top runs
+	 * until each run is more than twice as long as the next one
+	 */
+	private void flush() {
+		if (pending == 0) return;
+		Key[] run = (Key[]) new Object[pending];
+		System.arraycopy(buffer, 0, run, 0, pending);
+		for (int i = 0 ; i < pending ; i++) buffer[i] = null;
+		pending = 0;
+		Quick.sort(run, comp);
+		runs.add(run);
+		int top = runs.size() - 1;
+		while (top > 0 && runs.get(top-1).length <= 2*runs.get(top).length) {
+			Key[] merged = merge(runs.get(top-1), runs.remove(top));
+			runs.set(--top, merged);
+		}
+	}
+
+	private Key[] merge(Key[] a, Key[] b) {
+		Key[] c = (Key[]) new Object[a.length + b.length];
+		int i = 0, j = 0, k = 0;
+		while (i < a.length && j < b.length) {
+			if (comp.compare(b[j], a[i]) < 0) c[k++] = b[j++];
+			else c[k++] = a[i++];
+		}
+		System.arraycopy(a, i, c, k, a.length - i);
+		System.arraycopy(b, j, c, k, b.length - j);
+		return c;
+	}
+
+	/**
+	 * Iterator over the keys in ascending order.
+	 * The collection must not be changed while iterating.
+	 * Worst case is O(BATCH*log(BATCH)) then O(log(log(n))) per key
+	 * @return an Iterator over the keys in ascending order
+	 */
+	public Iterator<Key> iterator() {
+		flush();
+		return new MyIterator();
+	}
+
+	private class MyIterator implements Iterator<Key> {
+		private final Key[][] sorted;						//The runs being merged
+		private final int[] next;							//Position of the next key of each run
+		private final IndexMultiwayMinPQ<Key> heads;		//Next key of each run
+		private final int expected = modCount;
+
+		public MyIterator() {
+			int k = runs.size();
+			sorted = (Key[][]) new Object[k][];
+			next = new int[k];
+			heads = new IndexMultiwayMinPQ<Key>(k, comp, 2);
+			for (int i = 0 ; i < k ; i++) {
+				sorted[i] = runs.get(i);
+				heads.insert(i, sorted[i][next[i]++]);
+			}
+		}
+
+		public boolean hasNext() {
+			return !heads.isEmpty();
+		}
+
+		public Key next() {
+			if (modCount != expected) throw new ConcurrentModificationException();
+			if (heads.isEmpty()) throw new NoSuchElementException("No more keys");
+			int i = heads.minIndex();
+			Key key = heads.minKey();
+			if (next[i] == sorted[i].length) heads.delMin();
+			else heads.changeKey(i, sorted[i][next[i]++]);
+			return key;
+		}
+
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	//default Comparator
+	private class MyComparator implements Comparator<Key> {
+		@Override
+		public int compare(Key key1, Key key2) {
+			return ((Comparable<Key>) key1).compareTo(key2);
+		}
+	}
+
+	public static void main(String[] args) {
+		int N = 200000;
+		int[] every = { 20000, 2000 };
+		for (int q : every) {
+			Chrono c = new Chrono();
+			IncrementalSort<Integer> inc = new IncrementalSort<Integer>();
+			long sum = 0;
+			for (int i = 1 ; i <= N ; i++) {
+				inc.insert((int) (Math.random()*Integer.MAX_VALUE));
+				if (i % q == 0) for (Integer k : inc) sum += k;
+			}
+			System.out.println(N + " inserts, read all every " + q + ", IncrementalSort : " + c.elapsedTime());
+			c.reset();
+			Integer[] all = new Integer[N];
+			for (int i = 1 ; i <= N ; i++) {
+				all[i-1] = (int) (Math.random()*Integer.MAX_VALUE);
+				if (i % q == 0) {
+					Quick.sort(all, 0, i-1);
+					for (int j = 0 ; j < i ; j++) sum += all[j];
+				}
+			}
+			System.out.println(N + " inserts, read all every " + q + ", Quick.sort each time : " + c.elapsedTime());
+		}
+		// reading only the 10 smallest keys, the runs are merged no further than needed
+		Chrono c = new Chrono();
+		IncrementalSort<Integer> inc = new IncrementalSort<Integer>();
+		long sum = 0;
+		for (int i = 1 ; i <= N ; i++) {
+			inc.insert((int) (Math.random()*Integer.MAX_VALUE));
+			if (i % 200 == 0) {
+				Iterator<Integer> it = inc.iterator();
+				for (int j = 0 ; j < 10 ; j++) sum += it.next();
+			}
+		}
+		System.out.println(N + " inserts, read 10 smallest every 200, IncrementalSort : " + c.elapsedTime());
+	}
+	/*200000 inserts, read all every 20000, IncrementalSort : 0.883
+200000 inserts, read all every 20000, Quick.sort each time : 1.085
+200000 inserts, read all every 2000, IncrementalSort : 1.408
+200000 inserts, read all every 2000, Quick.sort each time : 3.327
+200000 inserts, read 10 smallest every 200, IncrementalSort : 0.062*/
+}
@@ -0,0 +1,604 @@
+package tools;
+
+import java.lang.reflect.Array;
+import java.util.Comparator;
+
+/**
+ *  The IndexSort class sorts indices by the keys they point to, without moving the keys.
+ *
+ *  sort(keys) returns the permutation p such that keys[p[0]] <= keys[p[1]] <= ...
+ *  and sort(index, keys) reorders an existing int[] of indices the same way,
+ *  so several parallel columns can be ordered by one of them : sort the index by
+ *  that column, then gather every column through the index.
+ *  Keys are never copied nor boxed, the only arrays allocated are the permutation
+ *  and the gathered columns.
+ *
+ *  Equal keys are ordered by their index, so the result is the one of a stable sort
+ *  and does not depend on the initial order of the index.
+ *  The index is sorted with the scheme of Quick : median of 3 pivot, Insertion
+ *  under 5 elements, smaller side first and heapsort after 4*lg(N) partitions,
+ *  so it takes time proportional to N*lg(N) in the worst case.
+ */
+public final class IndexSort {
+
+	// don't instantiate
+	private IndexSort() { }
+
+	/**
+	 * Sorts the indices of an array by its keys
+	 * @param keys the keys
+	 * @return the permutation p such that keys[p[i]] is the i-th smallest key
+	 */
+	public static int[] sort(int[] keys) {
+		int[] index = new int[keys.length];
+		for (int i = 0 ; i < index.length ; i++) index[i] = i;
+		sort(index, keys);
+		return index;
+	}
+
+	/**
+	 * Reorders the given indices by the keys they point to
+	 * @param index indices into keys, sorted in place
+	 * @param keys the keys
+	 * @throws java.lang.ArrayIndexOutOfBoundsException if an index is not a valid position in keys
+	 */
+	public static void sort(int[] index, int[] keys) {
+		quicksort(index, keys, 0, index.length-1, Quick.depthLimit(index.length));
+	}
+
+	/**
+	 * Sorts the indices of an array by its keys
+	 * @param keys the keys
+	 * @return the permutation p such that keys[p[i]] is the i-th smallest key
+	 */
+	public static int[] sort(long[] keys) {
+		int[] index = new int[keys.length];
+		for (int i = 0 ; i < index.length ; i++) index[i] = i;
+		sort(index, keys);
+		return index;
+	}
+
+	/**
+	 * Reorders the given indices by the keys they point to
+	 * @param index indices into keys, sorted in place
+	 * @param keys the keys
+	 * @throws java.lang.ArrayIndexOutOfBoundsException if an index is not a valid position in keys
+	 */
+	public static void sort(int[] index, long[] keys) {
+		quicksort(index, keys, 0, index.length-1, Quick.depthLimit(index.length));
+	}
+
+	/**
+	 * Sorts the indices of an array by its keys
+	 * @param keys the keys
+	 * @return the permutation p such that keys[p[i]] is the i-th smallest key
+	 */
+	public static int[] sort(double[] keys) {
+		int[] index = new int[keys.length];
+		for (int i = 0 ; i < index.length ; i++) index[i] = i;
+		sort(index, keys);
+		return index;
+	}
+
+	/**
+	 * Reorders the given indices by the keys they point to
+	 * @param index indices into keys, sorted in place
+	 * @param keys the keys
+	 * @throws java.lang.ArrayIndexOutOfBoundsException if an index is not a valid position in keys
+	 */
+	public static void sort(int[] index, double[] keys) {
+		quicksort(index, keys, 0, index.length-1, Quick.depthLimit(index.length));
+	}
+
+	/**
+	 * Sorts the indices of an array by its keys
+	 * @param keys the keys
+	 * @return the permutation p such that keys[p[i]] is the i-th smallest key
+	 */
+	public static int[] sort(Comparable[] keys) {
+		int[] index = new int[keys.length];
+		for (int i = 0 ; i < index.length ; i++) index[i] = i;
+		sort(index, keys);
+		return index;
+	}
+
+	/**
+	 * Reorders the given indices by the keys they point to
+	 * @param index indices into keys, sorted in place
+	 * @param keys the keys
+	 * @throws java.lang.ArrayIndexOutOfBoundsException if an index is not a valid position in keys
+	 */
+	public static void sort(int[] index, Comparable[] keys) {
+		quicksort(index, keys, 0, index.length-1, Quick.depthLimit(index.length));
+	}
+
+	/**
+	 * Sorts the indices of an array by its keys
+	 * @param keys the keys
+	 * @param c the order to use
+	 * @return the permutation p such that keys[p[i]] is the i-th smallest key
+	 */
+	public static <T> int[] sort(T[] keys, Comparator<? super T> c) {
+		int[] index = new int[keys.length];
+		for (int i = 0 ; i < index.length ; i++) index[i] = i;
+		sort(index, keys, c);
+		return index;
+	}
+
+	/**
+	 * Reorders the given indices by the keys they point to
+	 * @param index indices into keys, sorted in place
+	 * @param keys the keys
+	 * @param c the order to use
+	 * @throws java.lang.ArrayIndexOutOfBoundsException if an index is not a valid position in keys
+	 */
+	public static <T> void sort(int[] index, T[] keys, Comparator<? super T> c) {
+		quicksort(index, keys, 0, index.length-1, Quick.depthLimit(index.length), c);
+	}
+
+	/**
+	 * Gathers a column through an index
+	 * @param column the values
+	 * @param index positions in column
+	 * @return the array holding column[index[i]] at i
+	 */
+	public static int[] gather(int[] column, int[] index) {
+		int[] ret = new int[index.length];
+		for (int i = 0 ; i < index.length ; i++) ret[i] = column[index[i]];
+		return ret;
+	}
+
+	public static long[] gather(long[] column, int[] index) {
+		long[] ret = new long[index.length];
+		for (int i = 0 ; i < index.length ; i++) ret[i] = column[index[i]];
+		return ret;
+	}
+
+	public static double[] gather(double[] column, int[] index) {
+		double[] ret = new double[index.length];
+		for (int i = 0 ; i < index.length ; i++) ret[i] = column[index[i]];
+		return ret;
+	}
+
+	public static <T> T[] gather(T[] column, int[] index) {
+		T[] ret = (T[]) Array.newInstance(column.getClass().getComponentType(), index.length);
+		for (int i = 0 ; i < index.length ; i++) ret[i] = column[index[i]];
+		return ret;
+	}
+
+	private static void quicksort(int[] index, int[] keys, int start, int end, int depth) {
+		while (end > start) {
+			if (end - start <= 4) {
+				insertion(index, keys, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				heapsort(index, keys, start, end);
+				return;
+			}
+			int mid = start + (end - start)/2;
+			exch(index, start, median3(index, keys, start, mid, end));
+			int j = partition(index, keys, start, end);
+			if (j - start < end - j) {
+				quicksort(index, keys, start, j-1, depth);
+				start = j+1;
+			} else {
+				quicksort(index, keys, j+1, end, depth);
+				end = j-1;
+			}
+		}
+	}
+
+	private static int partition(int[] index, int[] keys, int start, int end) {
+		int i = start;
+		int j = end + 1;
+		int v = index[start];
+		while (true) {
+			while (less(keys, index[++i], v))
+				if (i == end) break;
+			while (less(keys, v, index[--j]))
+				if (j == start) break;
+			if (i >= j) break;
+			exch(index, i, j);
+		}
+		exch(index, start, j);
+		return j;
+	}
+
+	private static int median3(int[] index, int[] keys, int i, int j, int k) {
+		int x = index[i], y = index[j], z = index[k];
+		return (less(keys, x, y) ?
+				(less(keys, y, z) ? j : less(keys, x, z) ? k : i) :
+				(less(keys, z, y) ? j : less(keys, z, x) ? k : i));
+	}
+
+	private static void insertion(int[] index, int[] keys, int start, int end) {
+		for (int i = start+1 ; i <= end ; i++) {
+			int v = index[i];
+			int j = i;
+			for ( ; j > start && less(keys, v, index[j-1]) ; j--) index[j] = index[j-1];
+			index[j] = v;
+		}
+	}
+
+	private static void heapsort(int[] index, int[] keys, int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(index, keys, start, k, N);
+		while (N > 1) {
+			exch(index, start, start+N-1);
+			sink(index, keys, start, 1, --N);
+		}
+	}
+
+	private static void sink(int[] index, int[] keys, int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && less(keys, index[start+j-1], index[start+j])) j++;
+			if (!less(keys, index[start+k-1], index[start+j-1])) break;
+			exch(index, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	private static void quicksort(int[] index, long[] keys, int start, int end, int depth) {
+		while (end > start) {
+			if (end - start <= 4) {
+				insertion(index, keys, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				heapsort(index, keys, start, end);
+				return;
+			}
+			int mid = start + (end - start)/2;
+			exch(index, start, median3(index, keys, start, mid, end));
+			int j = partition(index, keys, start, end);
+			if (j - start < end - j) {
+				quicksort(index, keys, start, j-1, depth);
+				start = j+1;
+			} else {
+				quicksort(index, keys, j+1, end, depth);
+				end = j-1;
+			}
+		}
+	}
+
+	private static int partition(int[] index, long[] keys, int start, int end) {
+		int i = start;
+		int j = end + 1;
+		int v = index[start];
+		while (true) {
+			while (less(keys, index[++i], v))
+				if (i == end) break;
+			while (less(keys, v, index[--j]))
+				if (j == start) break;
+			if (i >= j) break;
+			exch(index, i, j);
+		}
+		exch(index, start, j);
+		return j;
+	}
+
+	private static int median3(int[] index, long[] keys, int i, int j, int k) {
+		int x = index[i], y = index[j], z = index[k];
+		return (less(keys, x, y) ?
+				(less(keys, y, z) ? j : less(keys, x, z) ? k : i) :
+				(less(keys, z, y) ? j : less(keys, z, x) ? k : i));
+	}
+
+	private static void insertion(int[] index, long[] keys, int start, int end) {
+		for (int i = start+1 ; i <= end ; i++) {
+			int v = index[i];
+			int j = i;
+			for ( ; j > start && less(keys, v, index[j-1]) ; j--) index[j] = index[j-1];
+			index[j] = v;
+		}
+	}
+
+	private static void heapsort(int[] index, long[] keys, int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(index, keys, start, k, N);
+		while (N > 1) {
+			exch(index, start, start+N-1);
+			sink(index, keys, start, 1, --N);
+		}
+	}
+
+	private static void sink(int[] index, long[] keys, int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && less(keys, index[start+j-1], index[start+j])) j++;
+			if (!less(keys, index[start+k-1], index[start+j-1])) break;
+			exch(index, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	private static void quicksort(int[] index, double[] keys, int start, int end, int depth) {
+		while (end > start) {
+			if (end - start <= 4) {
+				insertion(index, keys, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				heapsort(index, keys, start, end);
+				return;
+			}
+			int mid = start + (end - start)/2;
+			exch(index, start, median3(index, keys, start, mid, end));
+			int j = partition(index, keys, start, end);
+			if (j - start < end - j) {
+				quicksort(index, keys, start, j-1, depth);
+				start = j+1;
+			} else {
+				quicksort(index, keys, j+1, end, depth);
+				end = j-1;
+			}
+		}
+	}
+
+	private static int partition(int[] index, double[] keys, int start, int end) {
+		int i = start;
+		int j = end + 1;
+		int v = index[start];
+		while (true) {
+			while (less(keys, index[++i], v))
+				if (i == end) break;
+			while (less(keys, v, index[--j]))
+				if (j == start) break;
+			if (i >= j) break;
+			exch(index, i, j);
+		}
+		exch(index, start, j);
+		return j;
+	}
+
+	private static int median3(int[] index, double[] keys, int i, int j, int k) {
+		int x = index[i], y = index[j], z = index[k];
+		return (less(keys, x, y) ?
+				(less(keys, y, z) ? j : less(keys, x, z) ? k : i) :
+				(less(keys, z, y) ? j : less(keys, z, x) ? k : i));
+	}
+
+	private static void insertion(int[] index, double[] keys, int start, int end) {
+		for (int i = start+1 ; i <= end ; i++) {
+			int v = index[i];
+			int j = i;
+			for ( ; j > start && less(keys, v, index[j-1]) ; j--) index[j] = index[j-1];
+			index[j] = v;
+		}
+	}
+
+	private static void heapsort(int[] index, double[] keys, int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(index, keys, start, k, N);
+		while (N > 1) {
+			exch(index, start, start+N-1);
+			sink(index, keys, start, 1, --N);
+		}
+	}
+
+	private static void sink(int[] index, double[] keys, int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && less(keys, index[start+j-1], index[start+j])) j++;
+			if (!less(keys, index[start+k-1], index[start+j-1])) break;
+			exch(index, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	private static void quicksort(int[] index, Comparable[] keys, int start, int end, int depth) {
+		while (end > start) {
+			if (end - start <= 4) {
+				insertion(index, keys, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				heapsort(index, keys, start, end);
+				return;
+			}
+			int mid = start + (end - start)/2;
+			exch(index, start, median3(index, keys, start, mid, end));
+			int j = partition(index, keys, start, end);
+			if (j - start < end - j) {
+				quicksort(index, keys, start, j-1, depth);
+				start = j+1;
+			} else {
+				quicksort(index, keys, j+1, end, depth);
+				end = j-1;
+			}
+		}
+	}
+
+	private static int partition(int[] index, Comparable[] keys, int start, int end) {
+		int i = start;
+		int j = end + 1;
+		int v = index[start];
+		while (true) {
+			while (less(keys, index[++i], v))
+				if (i == end) break;
+			while (less(keys, v, index[--j]))
+				if (j == start) break;
+			if (i >= j) break;
+			exch(index, i, j);
+		}
+		exch(index, start, j);
+		return j;
+	}
+
+	private static int median3(int[] index, Comparable[] keys, int i, int j, int k) {
+		int x = index[i], y = index[j], z = index[k];
+		return (less(keys, x, y) ?
+				(less(keys, y, z) ? j : less(keys, x, z) ? k : i) :
+				(less(keys, z, y) ? j : less(keys, z, x) ? k : i));
+	}
+
+	private static void insertion(int[] index, Comparable[] keys, int start, int end) {
+		for (int i = start+1 ; i <= end ; i++) {
+			int v = index[i];
+			int j = i;
+			for ( ; j > start && less(keys, v, index[j-1]) ; j--) index[j] = index[j-1];
+			index[j] = v;
+		}
+	}
+
+	private static void heapsort(int[] index, Comparable[] keys, int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(index, keys, start, k, N);
+		while (N > 1) {
+			exch(index, start, start+N-1);
+			sink(index, keys, start, 1, --N);
+		}
+	}
+
+	private static void sink(int[] index, Comparable[] keys, int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && less(keys, index[start+j-1], index[start+j])) j++;
+			if (!less(keys, index[start+k-1], index[start+j-1])) break;
+			exch(index, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	private static <T> void quicksort(int[] index, T[] keys, int start, int end, int depth, Comparator<? super T> c) {
+		while (end > start) {
+			if (end - start <= 4) {
+				insertion(index, keys, start, end, c);
+				return;
+			}
+			if (depth-- == 0) {
+				heapsort(index, keys, start, end, c);
+				return;
+			}
+			int mid = start + (end - start)/2;
+			exch(index, start, median3(index, keys, start, mid, end, c));
+			int j = partition(index, keys, start, end, c);
+			if (j - start < end - j) {
+				quicksort(index, keys, start, j-1, depth, c);
+				start = j+1;
+			} else {
+				quicksort(index, keys, j+1, end, depth, c);
+				end = j-1;
+			}
+		}
+	}
+
+	private static <T> int partition(int[] index, T[] keys, int start, int end, Comparator<? super T> c) {
+		int i = start;
+		int j = end + 1;
+		int v = index[start];
+		while (true) {
+			while (less(keys, index[++i], v, c))
+				if (i == end) break;
+			while (less(keys, v, index[--j], c))
+				if (j == start) break;
+			if (i >= j) break;
+			exch(index, i, j);
+		}
+		exch(index, start, j);
+		return j;
+	}
+
+	private static <T> int median3(int[] index, T[] keys, int i, int j, int k, Comparator<? super T> c) {
+		int x = index[i], y = index[j], z = index[k];
+		return (less(keys, x, y, c) ?
+				(less(keys, y, z, c) ? j : less(keys, x, z, c) ? k : i) :
+				(less(keys, z, y, c) ? j : less(keys, z, x, c) ? k : i));
+	}
+
+	private static <T> void insertion(int[] index, T[] keys, int start, int end, Comparator<? super T> c) {
+		for (int i = start+1 ; i <= end ; i++) {
+			int v = index[i];
+			int j = i;
+			for ( ; j > start && less(keys, v, index[j-1], c) ; j--) index[j] = index[j-1];
+			index[j] = v;
+		}
+	}
+
+	private static <T> void heapsort(int[] index, T[] keys, int start, int end, Comparator<? super T> c) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(index, keys, start, k, N, c);
+		while (N > 1) {
+			exch(index, start, start+N-1);
+			sink(index, keys, start, 1, --N, c);
+		}
+	}
+
+	private static <T> void sink(int[] index, T[] keys, int start, int k, int N, Comparator<? super T> c) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && less(keys, index[start+j-1], index[start+j], c)) j++;
+			if (!less(keys, index[start+k-1], index[start+j-1], c)) break;
+			exch(index, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	/*
+	 * Order on the indices : by key, then by index for equal keys
+	 */
+	private static boolean less(int[] keys, int i, int j) {
+		return keys[i] < keys[j] || keys[i] == keys[j] && i < j;
+	}
+
+	private static boolean less(long[] keys, int i, int j) {
+		return keys[i] < keys[j] || keys[i] == keys[j] && i < j;
+	}
+
+	private static boolean less(double[] keys, int i, int j) {
+		int cmp = Double.compare(keys[i], keys[j]);
+		return cmp < 0 || cmp == 0 && i < j;
+	}
+
+	private static boolean less(Comparable[] keys, int i, int j) {
+		int cmp = keys[i].compareTo(keys[j]);
+		return cmp < 0 || cmp == 0 && i < j;
+	}
+
+	private static <T> boolean less(T[] keys, int i, int j, Comparator<? super T> c) {
+		int cmp = c.compare(keys[i], keys[j]);
+		return cmp < 0 || cmp == 0 && i < j;
+	}
+
+	private static void exch(int[] index, int i, int j) {
+		int temp = index[i];
+		index[i] = index[j];
+		index[j] = temp;
+	}
+
+	public static void main(String[] args) {
+		int N = 5000000;
+		long[] ids = new long[N];
+		double[] prices = new double[N];
+		int[] timestamps = new int[N];
+		for (int i = 0 ; i < N ; i++) {
+			ids[i] = i;
+			prices[i] = Math.random()*1000;
+			timestamps[i] = (int) (Math.random()*Integer.MAX_VALUE);
+		}
+		Chrono c = new Chrono();
+		int[] index = IndexSort.sort(timestamps);
+		System.out.println(N + " int keys, IndexSort : " + c.elapsedTime());
+		c.reset();
+		long[] sortedIds = IndexSort.gather(ids, index);
+		double[] sortedPrices = IndexSort.gather(prices, index);
+		int[] sortedTimestamps = IndexSort.gather(timestamps, index);
+		System.out.println(N + " rows, gather of 3 columns : " + c.elapsedTime());
+		c.reset();
+		index = IndexSort.sort(prices);
+		System.out.println(N + " double keys, IndexSort : " + c.elapsedTime());
+		for (int i = 1 ; i < N ; i++) {
+			if (sortedTimestamps[i-1] > sortedTimestamps[i]) System.out.println("Not sorted at " + i);
+		}
+	}
+	/*5000000 int keys, IndexSort : 1.759
+5000000 rows, gather of 3 columns : 0.432
+5000000 double keys, IndexSort : 2.207*/
+}
@@ -1,5 +1,7 @@
 package tools;
 
+import java.util.Comparator;
+
 public final class Insertion {
 	
 	public static void sort(Comparable[] a) {
@@ -16,20 +18,124 @@ public final class Insertion {
 	public static void sort(Comparable[] a, int start, int end) {
 		for (int i = start ; i < end ; i++) {
 			int j = i+1;
-			while (less(a, j, j-1) && j > start) {
+			while (j > start && less(a, j, j-1)) {
+				exch(a, j, j-1);
+				j--;
+			}
+		}
+	}
+	
+	public static <T> void sort(T[] a, Comparator<? super T> c) {
+		sort(a, 0, a.length-1, c);
+	}
+	
+	public static <T> void sort(T[] a, int start, int end, Comparator<? super T> c) {
+		for (int i = start ; i < end ; i++) {
+			int j = i+1;
+			while (j > start && compare(c, a[j], a[j-1]) < 0) {
 				exch(a, j, j-1);
 				j--;
 			}
 		}
 	}
 	
+	/*
+	 * Binary insertion : the place of each element in the sorted prefix is found
+	 * with a binary search, then the greater elements are shifted in one arraycopy.
+	 * Stable, lg(N) compares per element instead of N, still a quadratic number of moves.
+	 */
+	public static void binarySort(Comparable[] a, int start, int end) {
+		for (int i = start+1 ; i <= end ; i++) {
+			Comparable v = a[i];
+			int lo = start, hi = i;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (compare(v, a[mid]) < 0) hi = mid;
+				else lo = mid+1;
+			}
+			System.arraycopy(a, lo, a, lo+1, i-lo);
+			a[lo] = v;
+		}
+	}
+	
+	public static <T> void binarySort(T[] a, int start, int end, Comparator<? super T> c) {
+		if (end > start) binarySort(a, start, end, start+1, c);
+	}
+	
+	/*
+	 * a[start..sorted-1] is already sorted, inserts a[sorted..end] into it
+	 */
+	static <T> void binarySort(T[] a, int start, int end, int sorted, Comparator<? super T> c) {
+		for (int i = sorted ; i <= end ; i++) {
+			T v = a[i];
+			int lo = start, hi = i;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (compare(c, v, a[mid]) < 0) hi = mid;
+				else lo = mid+1;
+			}
+			System.arraycopy(a, lo, a, lo+1, i-lo);
+			a[lo] = v;
+		}
+	}
+	
+	public static void sort(int[] a) {
+		sort(a, 0, a.length-1);
+	}
+	
+	public static void sort(int[] a, int start, int end) {
+		for (int i = start+1 ; i <= end ; i++) {
+			int v = a[i];
+			int j = i;
+			for ( ; j > start && v < a[j-1] ; j--) a[j] = a[j-1];
+			a[j] = v;
+		}
+	}
+	
+	public static void sort(long[] a) {
+		sort(a, 0, a.length-1);
+	}
+	
+	public static void sort(long[] a, int start, int end) {
+		for (int i = start+1 ; i <= end ; i++) {
+			long v = a[i];
+			int j = i;
+			for ( ; j > start && v < a[j-1] ; j--) a[j] = a[j-1];
+			a[j] = v;
+		}
+	}
+	
+	public static void sort(double[] a) {
+		sort(a, 0, a.length-1);
+	}
+	
+	public static void sort(double[] a, int start, int end) {
+		for (int i = start+1 ; i <= end ; i++) {
+			double v = a[i];
+			int j = i;
+			for ( ; j > start && Double.compare(v, a[j-1]) < 0 ; j--) a[j] = a[j-1];
+			a[j] = v;
+		}
+	}
+	
 	private static boolean less(Comparable[] a, int b, int c) {
 		if ( b < 0 || c < 0) return false;
-		return (a[b].compareTo(a[c]) < 0);
+		return (compare(a[b], a[c]) < 0);
+	}
+	
+	private static int compare(Comparable v, Comparable w) {
+		SortStats.compare();
+		return v.compareTo(w);
+	}
+	
+	private static <T> int compare(Comparator<? super T> c, T v, T w) {
+		SortStats.compare();
+		return c.compare(v, w);
 	}
 	
-	private static void exch (Comparable[] a, int b, int c) {
-		Comparable temp = a[b];
+	private static void exch (Object[] a, int b, int c) {
+		SortStats.exchange();
+		Object temp = a[b];
 		a[b] = a[c];
 		a[c] = temp;
 		temp = null;
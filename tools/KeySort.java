@@ -0,0 +1,76 @@
+package tools;
+
+import java.util.Comparator;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ *  The KeySort class sorts objects by a primitive key computed once per object.
+ *
+ *  When the key of an object is expensive (a parsed field, a hash...), sorting with a
+ *  Comparator computes it twice per compare, about 2*N*lg(N) times. Here the key
+ *  extractor is called N times to fill a long[] or double[], the indices are sorted
+ *  by those keys with IndexSort, and the objects are put in that order at the end.
+ *  This is the decorate-sort-undecorate idiom, or Schwartzian transform.
+ *
+ *  Like IndexSort, it is stable : objects with equal keys keep their order.
+ *  Doubles are ordered as in Double.compare. Extra space is one key and one
+ *  index per object, plus a copy of the array for the final permutation.
+ */
+public final class KeySort {
+
+	// don't instantiate
+	private KeySort() { }
+
+	/**
+	 * Sorts the array by a long key
+	 * @param a the array to sort
+	 * @param key computes the key of an object, called once per object
+	 */
+	public static <T> void sortByLong(T[] a, ToLongFunction<? super T> key) {
+		long[] keys = new long[a.length];
+		for (int i = 0 ; i < a.length ; i++) keys[i] = key.applyAsLong(a[i]);
+		permute(a, IndexSort.sort(keys));
+	}
+
+	/**
+	 * Sorts the array by a double key
+	 * @param a the array to sort
+	 * @param key computes the key of an object, called once per object
+	 */
+	public static <T> void sortByDouble(T[] a, ToDoubleFunction<? super T> key) {
+		double[] keys = new double[a.length];
+		for (int i = 0 ; i < a.length ; i++) keys[i] = key.applyAsDouble(a[i]);
+		permute(a, IndexSort.sort(keys));
+	}
+
+	private static <T> void permute(T[] a, int[] index) {
+		T[] sorted = IndexSort.gather(a, index);
+		System.arraycopy(sorted, 0, a, 0, a.length);
+	}
+
+	public static void main(String[] args) {
+		int N = 2000000;
+		String[] ref = new String[N];
+		for (int i = 0 ; i < N ; i++) ref[i] = "id=" + (long) (Math.random()*Long.MAX_VALUE);
+		final ToLongFunction<String> id = new ToLongFunction<String>() {
+			public long applyAsLong(String s) {
+				return Long.parseLong(s.substring(3));
+			}
+		};
+		String[] tab = ref.clone();
+		Chrono c = new Chrono();
+		Quick.sort(tab, new Comparator<String>() {
+			public int compare(String v, String w) {
+				return Long.compare(id.applyAsLong(v), id.applyAsLong(w));
+			}
+		});
+		System.out.println(N + " parsed keys, Quick with Comparator : " + c.elapsedTime());
+		tab = ref.clone();
+		c.reset();
+		KeySort.sortByLong(tab, id);
+		System.out.println(N + " parsed keys, KeySort : " + c.elapsedTime());
+	}
+	/*2000000 parsed keys, Quick with Comparator : 18.414
+2000000 parsed keys, KeySort : 0.9*/
+}
@@ -1,5 +1,7 @@
 package tools;
 
+import java.util.Comparator;
+
 public class LinkedList<Item> {
 	private Node root;
 	private int size;
@@ -57,6 +59,55 @@ public class LinkedList<Item> {
 		return ret;
 	}
 	
+	/*
+	 * Sorts the list so that get(0) is the smallest item, by relinking the nodes.
+	 * Bottom-up merge sort : chains of 1, 2, 4... nodes are merged pairwise,
+	 * N*lg(N) compares, no node nor array allocated. Equal items keep their order.
+	 */
+	public void sort(Comparator<? super Item> c) {
+		for (int width = 1 ; width < size ; width *= 2) {
+			Node rest = root, tail = null;
+			root = null;
+			while (rest != null) {
+				Node a = rest;
+				Node b = split(a, width);
+				rest = split(b, width);
+				if (root == null) root = (b != null && c.compare(b.item, a.item) < 0) ? b : a;
+				tail = merge(a, b, tail, c);
+			}
+		}
+	}
+	
+	// cuts the chain after n nodes and returns the rest
+	private Node split(Node a, int n) {
+		for (int i = 1 ; a != null && i < n ; i++) a = a.previous;
+		if (a == null) return null;
+		Node rest = a.previous;
+		a.previous = null;
+		return rest;
+	}
+	
+	// links the merge of the sorted chains a and b after tail and returns the last node
+	private Node merge(Node a, Node b, Node tail, Comparator<? super Item> c) {
+		while (a != null && b != null) {
+			Node min;
+			if (c.compare(b.item, a.item) < 0) {
+				min = b;
+				b = b.previous;
+			} else {
+				min = a;
+				a = a.previous;
+			}
+			if (tail != null) tail.previous = min;
+			tail = min;
+		}
+		Node rest = a != null ? a : b;
+		if (tail == null) tail = rest;
+		else tail.previous = rest;
+		while (tail.previous != null) tail = tail.previous;
+		return tail;
+	}
+	
 	public String toString() {
 		if (root == null) return null;
 		String s = "";
@@ -0,0 +1,178 @@
+package tools;
+
+import java.util.Arrays;
+
+/**
+ *  The LongUnionFind class is a union-find over sparse 64-bit ids that appear over time,
+ *  without knowing their number in advance.
+ *
+ *  The first time an id is seen, it gets the next site of a growable UnionFind, so the
+ *  union-find itself runs on dense int arrays. Ids are found through an open-addressing
+ *  hash table of ints (site + 1, 0 for an empty slot) with linear probing, the ids being
+ *  stored once, in site order : nothing is boxed and a lookup touches two arrays.
+ *  The table is kept at most half full and doubles when it is not.
+ *
+ *  Find, union and connected take amortized near-constant time, plus an expected constant
+ *  time per lookup. Adding an id takes amortized constant time.
+ */
+public class LongUnionFind {
+	private final UnionFind uf;		//Union-find over the sites
+	private long[] ids;				//Id of each site
+	private int[] table;			//Site + 1 of the ids, by hash, 0 if empty
+	private int mask;				//table.length - 1
+
+	/**
+	 * Initializes an empty union-find
+	 */
+	public LongUnionFind() {
+		this(16);
+	}
+
+	/**
+	 * Initializes an empty union-find
+	 * @param capacity number of ids expected, the structure grows beyond it
+	 * @throws java.lang.IllegalArgumentException if capacity < 0
+	 */
+	public LongUnionFind(int capacity) {
+		if (capacity < 0) throw new IllegalArgumentException("Capacity cannot be negative");
+		uf = new UnionFind(0, capacity);
+		ids = new long[Math.max(capacity, 16)];
+		table = new int[Integer.highestOneBit(2*ids.length - 1) << 1];
+		mask = table.length - 1;
+	}
+
+	/**
+	 * Site of an id, a new one if the id was never seen
+	 * Amortized cost is O(1)
+	 * @param id an id
+	 * @return the site of id, between 0 and size()-1
+	 */
+	public int site(long id) {
+		int i = hash(id) & mask;
+		for (int s = table[i] ; s != 0 ; s = table[i]) {
+			if (ids[s-1] == id) return s-1;
+			i = (i + 1) & mask;
+		}
+		int s = uf.add();
+		if (s == ids.length) ids = Arrays.copyOf(ids, 2*s);
+		ids[s] = id;
+		table[i] = s+1;
+		if (2*(s+1) > table.length) resize();
+		return s;
+	}
+
+	/**
+	 * Whether an id was seen
+	 * @param id an id
+	 * @return true if id has a site
+	 */
+	public boolean contains(long id) {
+		return lookup(id) >= 0;
+	}
+
+	/**
+	 * Representative of the component of an id, the id itself if it was never seen
+	 * @param id an id
+	 * @return the id at the root of the component of id
+	 */
+	public long find(long id) {
+		int s = lookup(id);
+		return s < 0 ? id : ids[uf.find(s)];
+	}
+
+	/**
+	 * Whether two ids are in the same component
+	 * @param p an id
+	 * @param q an id
+	 * @return true if p and q are connected
+	 */
+	public boolean connected(long p, long q) {
+		if (p == q) return true;
+		int i = lookup(p), j = lookup(q);
+		return i >= 0 && j >= 0 && uf.connected(i, j);
+	}
+
+	/**
+	 * Merges the components of two ids, adding them if they were never seen
+	 * @param p an id
+	 * @param q an id
+	 * @return true if p and q were in different components
+	 */
+	public boolean union(long p, long q) {
+		return uf.union(site(p), site(q));
+	}
+
+	/**
+	 * Number of ids in the component of an id
+	 * @param id an id
+	 * @return the size of the component of id, 1 if it was never seen
+	 */
+	public int componentSize(long id) {
+		int s = lookup(id);
+		return s < 0 ? 1 : uf.componentSize(s);
+	}
+
+	/**
+	 * Number of components among the ids seen
+	 * @return the number of components
+	 */
+	public int count() {
+		return uf.count();
+	}
+
+	/**
+	 * Number of ids seen
+	 * @return the number of ids
+	 */
+	public int size() {
+		return uf.size();
+	}
+
+	// site of id, -1 if it was never seen
+	private int lookup(long id) {
+		int i = hash(id) & mask;
+		for (int s = table[i] ; s != 0 ; s = table[i]) {
+			if (ids[s-1] == id) return s-1;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void resize() {
+		table = new int[2*table.length];
+		mask = table.length - 1;
+		for (int s = 0 ; s < uf.size() ; s++) {
+			int i = hash(ids[s]) & mask;
+			while (table[i] != 0) i = (i + 1) & mask;
+			table[i] = s+1;
+		}
+	}
+
+	private static int hash(long id) {
+		long h = id * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	public static void main(String[] args) {
+		int N = 5000000;
+		int M = 10000000;
+		long[] pool = new long[N];
+		for (int i = 0 ; i < N ; i++) pool[i] = (long) (Math.random()*Long.MAX_VALUE);
+		Chrono c = new Chrono();
+		LongUnionFind luf = new LongUnionFind();
+		for (int k = 0 ; k < M ; k++) luf.union(pool[(int) (Math.random()*N)], pool[(int) (Math.random()*N)]);
+		System.out.println(M + " unions of " + luf.size() + " sparse long ids : " + c.elapsedTime()
+				+ ", " + luf.count() + " components");
+		c.reset();
+		luf = new LongUnionFind(N);
+		for (int k = 0 ; k < M ; k++) luf.union(pool[(int) (Math.random()*N)], pool[(int) (Math.random()*N)]);
+		System.out.println(M + " unions of " + luf.size() + " sparse long ids, presized : " + c.elapsedTime());
+		c.reset();
+		UnionFind uf = new UnionFind(N);
+		for (int k = 0 ; k < M ; k++) uf.union((int) (Math.random()*N), (int) (Math.random()*N));
+		System.out.println(M + " unions of " + N + " dense int sites, UnionFind : " + c.elapsedTime());
+	}
+	/*10000000 unions of 4909025 sparse long ids : 9.264, 3634 components
+10000000 unions of 4908218 sparse long ids, presized : 8.376
+10000000 unions of 5000000 dense int sites, UnionFind : 3.532*/
+}
@@ -0,0 +1,492 @@
+package tools;
+
+import java.util.Comparator;
+
+/**
+ *  The NaturalMerge class is a stable, adaptive merge sort in the spirit of TimSort.
+ *
+ *  The array is cut into its natural runs : maximal non-descending sequences,
+ *  or strictly descending sequences which are reversed in place (strictness
+ *  keeps the sort stable). Runs shorter than a minimum length (between 16 and 32
+ *  elements) are extended with Insertion.binarySort.
+ *  The runs are pushed on a stack and merged so that the lengths on the stack
+ *  decrease at least as fast as the Fibonacci numbers, which keeps the merges balanced.
+ *  When one run keeps winning during a merge, the merge switches to galloping :
+ *  it looks for the end of the winning streak with an exponential then a binary search
+ *  and moves the whole block with one arraycopy.
+ *
+ *  An already sorted (or reverse sorted) array is a single run and is sorted with N-1 compares.
+ *  A nearly sorted array has a few long runs and sorts close to linear time.
+ *  Worst case is O(N*lg(N)) compares, extra space is at most N/2 references.
+ *
+ *  As in Insertion and Quick, ranges are given as a[start..end], both bounds included.
+ */
+public class NaturalMerge {
+	private static final int MIN_MERGE = 32;	//Arrays shorter than this are only binary insertion sorted
+	private static final int MIN_GALLOP = 7;	//Number of consecutive wins before galloping
+	private static final int MAX_RUNS = 49;		//Enough pending runs for any int length
+
+	// natural order of Comparable keys, shared with Merge
+	static final Comparator<Object> NATURAL = new Comparator<Object>() {
+		public int compare(Object v, Object w) {
+			return ((Comparable) v).compareTo(w);
+		}
+	};
+
+	/*
+	 * State of one sort : the array, the stack of pending runs and the merge buffer
+	 */
+	private static class Runs<T> {
+		private final T[] a;
+		private final Comparator<? super T> c;
+		private T[] tmp;
+		private int minGallop = MIN_GALLOP;
+		private final int[] runBase = new int[MAX_RUNS];
+		private final int[] runLen = new int[MAX_RUNS];
+		private int stackSize = 0;
+
+		public Runs(T[] a, Comparator<? super T> c) {
+			this.a = a;
+			this.c = c;
+		}
+
+		public void push(int base, int len) {
+			runBase[stackSize] = base;
+			runLen[stackSize++] = len;
+		}
+
+		/*
+		 * Merges the runs on top of the stack until
+		 * runLen[i-2] > runLen[i-1] + runLen[i] and runLen[i-1] > runLen[i]
+		 * hold on the whole stack
+		 */
+		public void mergeCollapse() {
+			while (stackSize > 1) {
+				int n = stackSize - 2;
+				if (n > 0 && runLen[n-1] <= runLen[n] + runLen[n+1]
+						|| n > 1 && runLen[n-2] <= runLen[n] + runLen[n-1]) {
+					if (runLen[n-1] < runLen[n+1]) n--;
+				} else if (runLen[n] > runLen[n+1]) {
+					break;
+				}
+				mergeAt(n);
+			}
+		}
+
+		public void mergeForceCollapse() {
+			while (stackSize > 1) {
+				int n = stackSize - 2;
+				if (n > 0 && runLen[n-1] < runLen[n+1]) n--;
+				mergeAt(n);
+			}
+		}
+
+		// Merges the runs number i and i+1 of the stack
+		private void mergeAt(int i) {
+			int base1 = runBase[i], len1 = runLen[i];
+			int base2 = runBase[i+1], len2 = runLen[i+1];
+			runLen[i] = len1 + len2;
+			if (i == stackSize - 3) {
+				runBase[i+1] = runBase[i+2];
+				runLen[i+1] = runLen[i+2];
+			}
+			stackSize--;
+
+			// Elements of run1 before the first element of run2 are already in place
+			int k = gallopRight(a[base2], a, base1, len1, 0, c);
+			base1 += k;
+			len1 -= k;
+			if (len1 == 0) return;
+			// So are the elements of run2 after the last element of run1
+			len2 = gallopLeft(a[base1 + len1 - 1], a, base2, len2, len2 - 1, c);
+			if (len2 == 0) return;
+
+			if (len1 <= len2) mergeLo(base1, len1, base2, len2);
+			else mergeHi(base1, len1, base2, len2);
+		}
+
+		/*
+		 * Merges from left to right, run1 being the shortest and copied in tmp.
+		 * a[base1] > a[base2] and the last element of run1 is greater than all of run2
+		 */
+		private void mergeLo(int base1, int len1, int base2, int len2) {
+			T[] a = this.a;
+			T[] tmp = buffer(len1);
+			System.arraycopy(a, base1, tmp, 0, len1);
+			int cursor1 = 0, cursor2 = base2, dest = base1;
+
+			a[dest++] = a[cursor2++];
+			if (--len2 == 0) {
+				System.arraycopy(tmp, cursor1, a, dest, len1);
+				return;
+			}
+			if (len1 == 1) {
+				System.arraycopy(a, cursor2, a, dest, len2);
+				a[dest + len2] = tmp[cursor1];
+				return;
+			}
+
+			int minGallop = this.minGallop;
+		outer:
+			while (true) {
+				int count1 = 0, count2 = 0;		//Number of consecutive wins of each run
+
+				// One element at a time until a run wins often enough
+				do {
+					if (c.compare(a[cursor2], tmp[cursor1]) < 0) {
+						a[dest++] = a[cursor2++];
+						count2++;
+						count1 = 0;
+						if (--len2 == 0) break outer;
+					} else {
+						a[dest++] = tmp[cursor1++];
+						count1++;
+						count2 = 0;
+						if (--len1 == 1) break outer;
+					}
+				} while ((count1 | count2) < minGallop);
+
+				// Galloping until neither run wins by long streaks anymore
+				do {
+					count1 = gallopRight(a[cursor2], tmp, cursor1, len1, 0, c);
+					if (count1 != 0) {
+						System.arraycopy(tmp, cursor1, a, dest, count1);
+						dest += count1;
+						cursor1 += count1;
+						len1 -= count1;
+						if (len1 <= 1) break outer;
+					}
+					a[dest++] = a[cursor2++];
+					if (--len2 == 0) break outer;
+
+					count2 = gallopLeft(tmp[cursor1], a, cursor2, len2, 0, c);
+					if (count2 != 0) {
+						System.arraycopy(a, cursor2, a, dest, count2);
+						dest += count2;
+						cursor2 += count2;
+						len2 -= count2;
+						if (len2 == 0) break outer;
+					}
+					a[dest++] = tmp[cursor1++];
+					if (--len1 == 1) break outer;
+					minGallop--;
+				} while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+				if (minGallop < 0) minGallop = 0;
+				minGallop += 2;		//Galloping did not pay, make it harder to enter again
+			}
+			this.minGallop = minGallop < 1 ? 1 : minGallop;
+
+			if (len1 == 1) {
+				System.arraycopy(a, cursor2, a, dest, len2);
+				a[dest + len2] = tmp[cursor1];
+			} else if (len1 == 0) {
+				throw new IllegalArgumentException("Comparison method violates its general contract");
+			} else {
+				System.arraycopy(tmp, cursor1, a, dest, len1);
+			}
+		}
+
+		/*
+		 * Merges from right to left, run2 being the shortest and copied in tmp.
+		 * Same preconditions as mergeLo
+		 */
+		private void mergeHi(int base1, int len1, int base2, int len2) {
+			T[] a = this.a;
+			T[] tmp = buffer(len2);
+			System.arraycopy(a, base2, tmp, 0, len2);
+			int cursor1 = base1 + len1 - 1, cursor2 = len2 - 1, dest = base2 + len2 - 1;
+
+			a[dest--] = a[cursor1--];
+			if (--len1 == 0) {
+				System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+				return;
+			}
+			if (len2 == 1) {
+				dest -= len1;
+				cursor1 -= len1;
+				System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+				a[dest] = tmp[cursor2];
+				return;
+			}
+
+			int minGallop = this.minGallop;
+		outer:
+			while (true) {
+				int count1 = 0, count2 = 0;
+
+				do {
+					if (c.compare(tmp[cursor2], a[cursor1]) < 0) {
+						a[dest--] = a[cursor1--];
+						count1++;
+						count2 = 0;
+						if (--len1 == 0) break outer;
+					} else {
+						a[dest--] = tmp[cursor2--];
+						count2++;
+						count1 = 0;
+						if (--len2 == 1) break outer;
+					}
+				} while ((count1 | count2) < minGallop);
+
+				do {
+					count1 = len1 - gallopRight(tmp[cursor2], a, base1, len1, len1 - 1, c);
+					if (count1 != 0) {
+						dest -= count1;
+						cursor1 -= count1;
+						len1 -= count1;
+						System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+						if (len1 == 0) break outer;
+					}
+					a[dest--] = tmp[cursor2--];
+					if (--len2 == 1) break outer;
+
+					count2 = len2 - gallopLeft(a[cursor1], tmp, 0, len2, len2 - 1, c);
+					if (count2 != 0) {
+						dest -= count2;
+						cursor2 -= count2;
+						len2 -= count2;
+						System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+						if (len2 <= 1) break outer;
+					}
+					a[dest--] = a[cursor1--];
+					if (--len1 == 0) break outer;
+					minGallop--;
+				} while (count1 >= MIN_GALLOP | count2 >= MIN_GALLOP);
+				if (minGallop < 0) minGallop = 0;
+				minGallop += 2;
+			}
+			this.minGallop = minGallop < 1 ? 1 : minGallop;
+
+			if (len2 == 1) {
+				dest -= len1;
+				cursor1 -= len1;
+				System.arraycopy(a, cursor1 + 1, a, dest + 1, len1);
+				a[dest] = tmp[cursor2];
+			} else if (len2 == 0) {
+				throw new IllegalArgumentException("Comparison method violates its general contract");
+			} else {
+				System.arraycopy(tmp, 0, a, dest - (len2 - 1), len2);
+			}
+		}
+
+		// The merge buffer only grows, by doubling, up to the length of the array
+		private T[] buffer(int length) {
+			if (tmp == null || tmp.length < length) {
+				int capacity = tmp == null ? 256 : tmp.length;
+				while (capacity < length) capacity *= 2;
+				if (capacity > a.length) capacity = a.length;
+				tmp = (T[]) new Object[capacity];
+			}
+			return tmp;
+		}
+	}
+
+	/**
+	 * Sorts the array in natural order
+	 * @param a the array to sort
+	 */
+	public static void sort(Comparable[] a) {
+		sort(a, 0, a.length-1, NATURAL);
+	}
+
+	/**
+	 * Sorts a[start..end] in natural order
+	 * @param a the array to sort
+	 * @param start first index of the range
+	 * @param end last index of the range
+	 */
+	public static void sort(Comparable[] a, int start, int end) {
+		sort(a, start, end, NATURAL);
+	}
+
+	/**
+	 * Sorts the array according to a Comparator
+	 * @param a the array to sort
+	 * @param c the order to use
+	 */
+	public static <T> void sort(T[] a, Comparator<? super T> c) {
+		sort(a, 0, a.length-1, c);
+	}
+
+	/**
+	 * Sorts a[start..end] according to a Comparator
+	 * @param a the array to sort
+	 * @param start first index of the range
+	 * @param end last index of the range
+	 * @param c the order to use
+	 * @throws java.lang.IllegalArgumentException if the comparator is found to be inconsistent
+	 */
+	public static <T> void sort(T[] a, int start, int end, Comparator<? super T> c) {
+		int N = end - start + 1;
+		if (N < 2) return;
+		if (N < MIN_MERGE) {
+			int run = countRun(a, start, end, c);
+			Insertion.binarySort(a, start, end, start + run, c);
+			return;
+		}
+
+		Runs<T> runs = new Runs<T>(a, c);
+		int minRun = minRun(N);
+		int lo = start;
+		while (lo <= end) {
+			int run = countRun(a, lo, end, c);
+			if (run < minRun) {
+				int force = Math.min(end - lo + 1, minRun);
+				Insertion.binarySort(a, lo, lo + force - 1, lo + run, c);
+				run = force;
+			}
+			runs.push(lo, run);
+			runs.mergeCollapse();
+			lo += run;
+		}
+		runs.mergeForceCollapse();
+	}
+
+	/*
+	 * Length of the run starting at a[lo], reversed if it is descending
+	 */
+	private static <T> int countRun(T[] a, int lo, int end, Comparator<? super T> c) {
+		int hi = lo + 1;
+		if (hi > end) return 1;
+		if (c.compare(a[hi++], a[lo]) < 0) {
+			while (hi <= end && c.compare(a[hi], a[hi-1]) < 0) hi++;
+			reverse(a, lo, hi-1);
+		} else {
+			while (hi <= end && c.compare(a[hi], a[hi-1]) >= 0) hi++;
+		}
+		return hi - lo;
+	}
+
+	private static void reverse(Object[] a, int lo, int hi) {
+		while (lo < hi) {
+			Object temp = a[lo];
+			a[lo++] = a[hi];
+			a[hi--] = temp;
+		}
+	}
+
+	/*
+	 * Minimum run length : N divided by a power of 2, between MIN_MERGE/2 and MIN_MERGE,
+	 * rounded up so that the number of runs is a power of 2 or just under
+	 */
+	private static int minRun(int N) {
+		int r = 0;
+		while (N >= MIN_MERGE) {
+			r |= (N & 1);
+			N >>= 1;
+		}
+		return N + r;
+	}
+
+	/*
+	 * Position where key goes in the sorted a[base..base+len-1], before the equal keys.
+	 * The search starts from base+hint and doubles its step, then ends with a binary search
+	 */
+	private static <T> int gallopLeft(T key, T[] a, int base, int len, int hint, Comparator<? super T> c) {
+		int lastOfs = 0, ofs = 1;
+		if (c.compare(key, a[base + hint]) > 0) {
+			int maxOfs = len - hint;
+			while (ofs < maxOfs && c.compare(key, a[base + hint + ofs]) > 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) ofs = maxOfs;
+			}
+			if (ofs > maxOfs) ofs = maxOfs;
+			lastOfs += hint;
+			ofs += hint;
+		} else {
+			int maxOfs = hint + 1;
+			while (ofs < maxOfs && c.compare(key, a[base + hint - ofs]) <= 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) ofs = maxOfs;
+			}
+			if (ofs > maxOfs) ofs = maxOfs;
+			int temp = lastOfs;
+			lastOfs = hint - ofs;
+			ofs = hint - temp;
+		}
+		// a[base+lastOfs] < key <= a[base+ofs]
+		lastOfs++;
+		while (lastOfs < ofs) {
+			int m = lastOfs + ((ofs - lastOfs) >>> 1);
+			if (c.compare(key, a[base + m]) > 0) lastOfs = m + 1;
+			else ofs = m;
+		}
+		return ofs;
+	}
+
+	/*
+	 * Same as gallopLeft, but key goes after the equal keys
+	 */
+	private static <T> int gallopRight(T key, T[] a, int base, int len, int hint, Comparator<? super T> c) {
+		int lastOfs = 0, ofs = 1;
+		if (c.compare(key, a[base + hint]) < 0) {
+			int maxOfs = hint + 1;
+			while (ofs < maxOfs && c.compare(key, a[base + hint - ofs]) < 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) ofs = maxOfs;
+			}
+			if (ofs > maxOfs) ofs = maxOfs;
+			int temp = lastOfs;
+			lastOfs = hint - ofs;
+			ofs = hint - temp;
+		} else {
+			int maxOfs = len - hint;
+			while (ofs < maxOfs && c.compare(key, a[base + hint + ofs]) >= 0) {
+				lastOfs = ofs;
+				ofs = (ofs << 1) + 1;
+				if (ofs <= 0) ofs = maxOfs;
+			}
+			if (ofs > maxOfs) ofs = maxOfs;
+			lastOfs += hint;
+			ofs += hint;
+		}
+		// a[base+lastOfs] <= key < a[base+ofs]
+		lastOfs++;
+		while (lastOfs < ofs) {
+			int m = lastOfs + ((ofs - lastOfs) >>> 1);
+			if (c.compare(key, a[base + m]) < 0) ofs = m;
+			else lastOfs = m + 1;
+		}
+		return ofs;
+	}
+
+	public static void main(String[] args) {
+		int N = 5000000;
+		Integer[] ref = new Integer[N];
+		String[] names = {"random", "sorted", "nearly sorted", "reverse sorted"};
+		for (int k = 0 ; k < names.length ; k++) {
+			for (int i = 0 ; i < N ; i++) {
+				if (k == 0) ref[i] = (int) (Math.random()*N);
+				else if (k == 3) ref[i] = N - i;
+				else ref[i] = i;
+			}
+			if (k == 2) {
+				for (int i = 0 ; i < N/100 ; i++) {
+					int p = (int) (Math.random()*N), q = (int) (Math.random()*N);
+					Integer temp = ref[p];
+					ref[p] = ref[q];
+					ref[q] = temp;
+				}
+			}
+			Integer[] tab = ref.clone();
+			Chrono c = new Chrono();
+			NaturalMerge.sort(tab);
+			System.out.println(N + " " + names[k] + ", NaturalMerge : " + c.elapsedTime());
+			tab = ref.clone();
+			c.reset();
+			Quick.sort(tab);
+			System.out.println(N + " " + names[k] + ", Quick : " + c.elapsedTime());
+		}
+	}
+	/*5000000 random, NaturalMerge : 4.849
+5000000 random, Quick : 6.229
+5000000 sorted, NaturalMerge : 0.015
+5000000 sorted, Quick : 4.256
+5000000 nearly sorted, NaturalMerge : 1.634
+5000000 nearly sorted, Quick : 4.328
+5000000 reverse sorted, NaturalMerge : 0.029
+5000000 reverse sorted, Quick : 4.25*/
+}
@@ -0,0 +1,244 @@
+package tools;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *  The OffHeapUnionFind class is a union-find of up to 2^32 sites, numbered by longs,
+ *  kept outside the Java heap, in direct memory or in a memory-mapped file.
+ *
+ *  Each site takes 5 bytes : the parent as an unsigned int, and the rank of its tree as
+ *  a byte (union by rank instead of by size, a rank never exceeding 32). The parent is
+ *  stored xor the site, so a root holds 0 : zeroed memory, as given by allocateDirect or
+ *  by a new file, is N sites each in its own component and needs no initialization.
+ *  find halves the path like UnionFind.
+ *  A ByteBuffer is limited to 2^31 bytes, so the sites are split into chunks of 2^CHUNK
+ *  sites, one buffer of parents and one of ranks per chunk. MemorySegment would address
+ *  the whole range at once, but in JDK 17 it is in the incubator module jdk.incubator.foreign.
+ *
+ *  The file of a file-backed union-find holds a header (magic number, N and the number
+ *  of components) then the parents, little-endian whatever the machine, and the ranks.
+ *  Opening an existing file goes on from the unions already made. flush() forces the
+ *  changes to the disk.
+ *
+ *  Find, union and connected take amortized time proportional to the inverse Ackermann
+ *  function of N, practically constant. Construction takes constant time, though
+ *  direct memory is zeroed by the JVM.
+ */
+public class OffHeapUnionFind {
+	public static final long MAX = 1L << 32;		//Maximum number of sites
+	private static final long MAGIC = 0x554E494F4E46494EL;	//"UNIONFIN"
+	private static final int HEADER = 64;			//Bytes before the parents in a file
+	private static final int CHUNK = 28;			//Log of the number of sites per buffer
+	private static final long MASK = (1L << CHUNK) - 1;
+	private final ByteBuffer header;				//Magic number, N and count
+	private final ByteBuffer[] parent;				//Parent xor site, 4 bytes per site
+	private final ByteBuffer[] rank;				//Rank of each root, 1 byte per site
+	private final long N;							//Number of sites
+	private final boolean fileBacked;				//Whether the buffers map a file
+
+	/**
+	 * Initializes N sites in direct memory, each in its own component.
+	 * The JVM needs -XX:MaxDirectMemorySize over 5*N bytes.
+	 * @param N the number of sites
+	 * @throws java.lang.IllegalArgumentException if N < 0 or N > MAX
+	 */
+	public OffHeapUnionFind(long N) {
+		check(N);
+		this.N = N;
+		fileBacked = false;
+		int chunks = chunks(N);
+		parent = new ByteBuffer[chunks];
+		rank = new ByteBuffer[chunks];
+		for (int c = 0 ; c < chunks ; c++) {
+			parent[c] = ByteBuffer.allocateDirect(4 * length(c)).order(ByteOrder.LITTLE_ENDIAN);
+			rank[c] = ByteBuffer.allocateDirect(length(c));
+		}
+		header = ByteBuffer.allocateDirect(HEADER);
+		header.putLong(0, MAGIC).putLong(8, N).putLong(16, N);
+	}
+
+	/**
+	 * Opens a union-find of N sites backed by a file. A new file has each site in its
+	 * own component, an existing file keeps the components it was left with.
+	 * @param N the number of sites
+	 * @param file the file of the union-find
+	 * @throws java.io.IOException if the file cannot be read, written or mapped
+	 * @throws java.lang.IllegalArgumentException if N < 0 or N > MAX
+	 * @throws java.lang.IllegalArgumentException if the file exists and is not a union-find of N sites
+	 */
+	public OffHeapUnionFind(long N, File file) throws IOException {
+		check(N);
+		this.N = N;
+		fileBacked = true;
+		int chunks = chunks(N);
+		parent = new ByteBuffer[chunks];
+		rank = new ByteBuffer[chunks];
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel channel = raf.getChannel();
+			long size = HEADER + 5*N;
+			boolean fresh = channel.size() == 0;
+			if (fresh) raf.setLength(size);
+			else if (channel.size() != size) throw new IllegalArgumentException("File is not a union-find of " + N + " sites");
+			header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER);
+			if (fresh) header.putLong(0, MAGIC).putLong(8, N).putLong(16, N);
+			else if (header.getLong(0) != MAGIC || header.getLong(8) != N) {
+				throw new IllegalArgumentException("File is not a union-find of " + N + " sites");
+			}
+			// the mappings stay valid once the file is closed
+			for (int c = 0 ; c < chunks ; c++) {
+				long first = (long) c << CHUNK;
+				parent[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + 4*first, 4 * length(c)).order(ByteOrder.LITTLE_ENDIAN);
+				rank[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER + 4*N + first, length(c));
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Representative of the component of a site
+	 * @param p a site
+	 * @return the root of the component of p
+	 * @throws java.lang.IndexOutOfBoundsException if p is not between 0 and N-1
+	 */
+	public long find(long p) {
+		if (p < 0 || p >= N) throw new IndexOutOfBoundsException("Site " + p + " does not exist");
+		long q = parent(p);
+		while (q != p) {
+			long r = parent(q);
+			if (r != q) setParent(p, r);
+			p = r;
+			q = parent(p);
+		}
+		return p;
+	}
+
+	/**
+	 * Whether two sites are in the same component
+	 * @param p a site
+	 * @param q a site
+	 * @return true if p and q are connected
+	 * @throws java.lang.IndexOutOfBoundsException if p or q is not between 0 and N-1
+	 */
+	public boolean connected(long p, long q) {
+		return find(p) == find(q);
+	}
+
+	/**
+	 * Merges the components of two sites
+	 * @param p a site
+	 * @param q a site
+	 * @return true if p and q were in different components
+	 * @throws java.lang.IndexOutOfBoundsException if p or q is not between 0 and N-1
+	 */
+	public boolean union(long p, long q) {
+		long i = find(p), j = find(q);
+		if (i == j) return false;
+		ByteBuffer ri = rank[(int) (i >>> CHUNK)], rj = rank[(int) (j >>> CHUNK)];
+		int oi = (int) (i & MASK), oj = (int) (j & MASK);
+		byte a = ri.get(oi), b = rj.get(oj);
+		if (a < b) setParent(i, j);
+		else {
+			setParent(j, i);
+			if (a == b) ri.put(oi, (byte) (a + 1));
+		}
+		header.putLong(16, header.getLong(16) - 1);
+		return true;
+	}
+
+	/**
+	 * Number of components
+	 * Worst case is O(1)
+	 * @return the number of components
+	 */
+	public long count() {
+		return header.getLong(16);
+	}
+
+	/**
+	 * Number of sites
+	 * @return N
+	 */
+	public long size() {
+		return N;
+	}
+
+	/**
+	 * Writes the changes of a file-backed union-find to the disk, does nothing in direct memory
+	 */
+	public void flush() {
+		if (!fileBacked) return;
+		((MappedByteBuffer) header).force();
+		for (int c = 0 ; c < parent.length ; c++) {
+			((MappedByteBuffer) parent[c]).force();
+			((MappedByteBuffer) rank[c]).force();
+		}
+	}
+
+	private long parent(long p) {
+		int e = parent[(int) (p >>> CHUNK)].getInt((int) (p & MASK) << 2);
+		return (e & 0xFFFFFFFFL) ^ p;
+	}
+
+	private void setParent(long p, long q) {
+		parent[(int) (p >>> CHUNK)].putInt((int) (p & MASK) << 2, (int) (q ^ p));
+	}
+
+	// number of sites of chunk c
+	private int length(int c) {
+		return (int) Math.min(1L << CHUNK, N - ((long) c << CHUNK));
+	}
+
+	private static int chunks(long N) {
+		return (int) ((N + MASK) >>> CHUNK);
+	}
+
+	private static void check(long N) {
+		if (N < 0) throw new IllegalArgumentException("Number of sites cannot be negative");
+		if (N > MAX) throw new IllegalArgumentException("Number of sites cannot exceed 2^32");
+	}
+
+	public static void main(String[] args) throws IOException {
+		int N = 1 << 26;
+		long M = 1L << 27;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Chrono c = new Chrono();
+		OffHeapUnionFind ouf = new OffHeapUnionFind(N);
+		for (long k = 0 ; k < M ; k++) ouf.union(random.nextInt(N), random.nextInt(N));
+		System.out.println(M + " unions on " + N + " sites, OffHeapUnionFind : " + c.elapsedTime() + ", " + ouf.count() + " components");
+		ouf = null;
+		c.reset();
+		UnionFind uf = new UnionFind(N);
+		for (long k = 0 ; k < M ; k++) uf.union(random.nextInt(N), random.nextInt(N));
+		System.out.println(M + " unions on " + N + " sites, UnionFind : " + c.elapsedTime() + ", " + uf.count() + " components");
+		uf = null;
+
+		// 2^32 sites in a sparse file, only the pages touched take disk space
+		File file = File.createTempFile("unionfind", ".bin");
+		file.delete();
+		file.deleteOnExit();
+		c.reset();
+		ouf = new OffHeapUnionFind(MAX, file);
+		int m = 2000;
+		for (int k = 0 ; k < m ; k++) ouf.union(random.nextLong(MAX), random.nextLong(MAX));
+		ouf.union(0, MAX-1);
+		ouf.flush();
+		System.out.println(m + " unions on " + MAX + " sites, file-backed : " + c.elapsedTime() + ", " + ouf.count() + " components");
+		ouf = new OffHeapUnionFind(MAX, file);
+		System.out.println("Reopened : " + ouf.count() + " components, 0 and " + (MAX-1) + " connected : " + ouf.connected(0, MAX-1));
+	}
+	/*Run with -Xmx1500m -XX:MaxDirectMemorySize=1g. The file-backed unions each fault in
+random pages of a 20GB sparse file, so their time is the one of the disk
+134217728 unions on 67108864 sites, OffHeapUnionFind : 41.783, 1276678 components
+134217728 unions on 67108864 sites, UnionFind : 27.155, 1278342 components
+2000 unions on 4294967296 sites, file-backed : 17.696, 4294965295 components
+Reopened : 4294965295 components, 0 and 4294967295 connected : true*/
+}
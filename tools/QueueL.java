@@ -1,4 +1,5 @@
 package tools;
+import java.util.Comparator;
 import java.util.Iterator;
 
 public class QueueL<Item> implements Queue<Item> {
@@ -76,6 +77,62 @@ public class QueueL<Item> implements Queue<Item> {
 		return ret;
 	}
 	
+	/*
+	 * Sorts the queue so that the smallest item is dequeued first, by relinking the nodes.
+	 * Bottom-up merge sort on the previous links : chains of 1, 2, 4... nodes are merged
+	 * pairwise, then the next links are rebuilt. N*lg(N) compares, no node allocated.
+	 * Equal items keep their order.
+	 */
+	public void sort(Comparator<? super Item> c) {
+		for (int width = 1 ; width < size ; width *= 2) {
+			Node rest = last, tail = null;
+			last = null;
+			while (rest != null) {
+				Node a = rest;
+				Node b = split(a, width);
+				rest = split(b, width);
+				if (last == null) last = (b != null && c.compare(b.item, a.item) < 0) ? b : a;
+				tail = merge(a, b, tail, c);
+			}
+		}
+		Node after = null;
+		for (Node probe = last ; probe != null ; probe = probe.previous) {
+			probe.next = after;
+			after = probe;
+		}
+		first = after;
+	}
+	
+	// cuts the chain after n nodes and returns the rest
+	private Node split(Node a, int n) {
+		for (int i = 1 ; a != null && i < n ; i++) a = a.previous;
+		if (a == null) return null;
+		Node rest = a.previous;
+		a.previous = null;
+		return rest;
+	}
+	
+	// links the merge of the sorted chains a and b after tail and returns the last node
+	private Node merge(Node a, Node b, Node tail, Comparator<? super Item> c) {
+		while (a != null && b != null) {
+			Node min;
+			if (c.compare(b.item, a.item) < 0) {
+				min = b;
+				b = b.previous;
+			} else {
+				min = a;
+				a = a.previous;
+			}
+			if (tail != null) tail.previous = min;
+			tail = min;
+		}
+		Node rest = a != null ? a : b;
+		if (tail == null) tail = rest;
+		else tail.previous = rest;
+		while (tail.previous != null) tail = tail.previous;
+		return tail;
+	}
+	
 	public Iterator<Item> iterator() {
 		if (size == 0) return null;
 		return new MyIterator();
@@ -1,9 +1,42 @@
 package tools;
 
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+
 public class Quick {
-	
+
+	/*
+	 * TWO_WAY is the classic partition around a[start].
+	 * THREE_WAY splits the subarray into keys lower than, equal to and greater than
+	 * the pivot in one pass (Dijkstra), so runs of equal keys are never visited again.
+	 * AUTO looks at a[start], a[mid] and a[end] on each subarray and uses THREE_WAY
+	 * when two of them are equal, TWO_WAY otherwise.
+	 */
+	public enum Partition { TWO_WAY, THREE_WAY, AUTO }
+
+	/*
+	 * SHUFFLE shuffles the whole array first and then always takes a[start] as the pivot.
+	 * The other strategies leave the array as it is and pick the pivot of each subarray :
+	 * MEDIAN_OF_3 takes the median of a[start], a[mid] and a[end],
+	 * NINTHER takes the median of three medians of 3 on subarrays over 40 elements (Tukey),
+	 * RANDOM takes one element at random in the subarray.
+	 * Without the shuffle, already sorted or nearly sorted inputs partition evenly right away.
+	 */
+	public enum Pivot { SHUFFLE, MEDIAN_OF_3, NINTHER, RANDOM }
+
+	/*
+	 * Small subarrays of int[] and long[] go to Insertion, or to a sorting network when the
+	 * JVM is started with -Dtools.quick.kernel=network. -Dtools.quick.cutoff=n sets the size
+	 * of the largest of them, at least 2 : 16 by default, the best measured in Network.main,
+	 * and at most Network.MAX with the network.
+	 * Both are read once into static final fields, so the JIT keeps only the chosen kernel.
+	 */
+	private static final boolean NETWORK = "network".equals(System.getProperty("tools.quick.kernel"));
+	private static final int SMALL = Math.max(2, Math.min(NETWORK ? Network.MAX : Integer.MAX_VALUE,
+			Integer.getInteger("tools.quick.cutoff", 16)));
+
 	private static class Knuth {
-		
+
 	    public static void shuffle(Object[] a) {
 	        int N = a.length;
 	        for (int i = 0; i < N; i++) {
@@ -13,26 +46,701 @@ public class Quick {
 	            a[i] = temp;
 	        }
 	    }
+
+	    public static void shuffle(Object[] a, int start, int end) {
+	        for (int i = start; i <= end; i++) {
+	            int r = i + (int) (Math.random() * (end - i + 1));
+	            Object temp = a[r];
+	            a[r] = a[i];
+	            a[i] = temp;
+	        }
+	    }
+
+	    public static void shuffle(int[] a, int start, int end) {
+	        for (int i = start; i <= end; i++) {
+	            int r = i + (int) (Math.random() * (end - i + 1));
+	            int temp = a[r];
+	            a[r] = a[i];
+	            a[i] = temp;
+	        }
+	    }
+
+	    public static void shuffle(long[] a, int start, int end) {
+	        for (int i = start; i <= end; i++) {
+	            int r = i + (int) (Math.random() * (end - i + 1));
+	            long temp = a[r];
+	            a[r] = a[i];
+	            a[i] = temp;
+	        }
+	    }
+
+	    public static void shuffle(double[] a, int start, int end) {
+	        for (int i = start; i <= end; i++) {
+	            int r = i + (int) (Math.random() * (end - i + 1));
+	            double temp = a[r];
+	            a[r] = a[i];
+	            a[i] = temp;
+	        }
+	    }
 	}
-	
+
 	public static void sort(Comparable[] a) {
+		sort(a, Partition.AUTO);
+	}
+
+	public static void sort(Comparable[] a, Partition mode) {
+		sort(a, mode, Pivot.SHUFFLE);
+	}
+
+	public static void sort(Comparable[] a, Partition mode, Pivot pivot) {
+		sort(a, 0, a.length-1, mode, pivot);
+	}
+
+	public static void sort(Comparable[] a, int start, int end, Partition mode, Pivot pivot) {
+		if (end <= start) return;
+		if (pivot == Pivot.SHUFFLE) Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, mode, pivot, depthLimit(end - start + 1));
+	}
+
+	/*
+	 * Sorts a[start..end], both bounds included, leaving the rest of the array untouched
+	 */
+	public static void sort(Comparable[] a, int start, int end) {
+		if (end <= start) return;
+		Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, Partition.AUTO);
+	}
+
+	/*
+	 * Sorts according to the given Comparator instead of the natural order
+	 */
+	public static <T> void sort(T[] a, Comparator<? super T> c) {
 		Knuth.shuffle(a);
-		int N = a.length-1;
-		sort(a, 0, N);
-	}
-	
-	private static void sort(Comparable[] a, int start, int end) { 
-        if (end <= start) return;
-        if (end - start <= 4) {
-        	Insertion.sort(a, start, end);
-        	return;
-        }
-        int j = partition(a, start, end);
-        sort(a, start, j-1);
-        sort(a, j+1, end);
-    }
+		quicksort(a, 0, a.length-1, Partition.AUTO, c);
+	}
+
+	public static <T> void sort(T[] a, int start, int end, Comparator<? super T> c) {
+		if (end <= start) return;
+		Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, Partition.AUTO, c);
+	}
+
+	public static <T> void sort(T[] a, Partition mode, Pivot pivot, Comparator<? super T> c) {
+		sort(a, 0, a.length-1, mode, pivot, c);
+	}
+
+	public static <T> void sort(T[] a, int start, int end, Partition mode, Pivot pivot, Comparator<? super T> c) {
+		if (end <= start) return;
+		if (pivot == Pivot.SHUFFLE) Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, mode, pivot, depthLimit(end - start + 1), c);
+	}
+
+	/*
+	 * The primitive versions follow the same scheme as the Comparable one
+	 * (shuffle, partition, Insertion under 5 elements) but never box the values,
+	 * and int[] and long[] sort their small subarrays as set by NETWORK and SMALL
+	 */
+	public static void sort(int[] a) {
+		sort(a, 0, a.length-1);
+	}
+
+	public static void sort(int[] a, int start, int end) {
+		if (end <= start) return;
+		Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, Partition.AUTO);
+	}
+
+	public static void sort(int[] a, Partition mode) {
+		sort(a, mode, Pivot.SHUFFLE);
+	}
+
+	public static void sort(int[] a, Partition mode, Pivot pivot) {
+		sort(a, 0, a.length-1, mode, pivot);
+	}
+
+	public static void sort(int[] a, int start, int end, Partition mode, Pivot pivot) {
+		if (end <= start) return;
+		if (pivot == Pivot.SHUFFLE) Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, mode, pivot, depthLimit(end - start + 1));
+	}
+
+	public static void sort(long[] a) {
+		sort(a, 0, a.length-1);
+	}
+
+	public static void sort(long[] a, int start, int end) {
+		if (end <= start) return;
+		Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, Partition.AUTO);
+	}
+
+	public static void sort(long[] a, Partition mode) {
+		sort(a, mode, Pivot.SHUFFLE);
+	}
+
+	public static void sort(long[] a, Partition mode, Pivot pivot) {
+		sort(a, 0, a.length-1, mode, pivot);
+	}
+
+	public static void sort(long[] a, int start, int end, Partition mode, Pivot pivot) {
+		if (end <= start) return;
+		if (pivot == Pivot.SHUFFLE) Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, mode, pivot, depthLimit(end - start + 1));
+	}
+
+	/*
+	 * Doubles are ordered as by Double.compare : -0.0 before 0.0, NaN last
+	 */
+	public static void sort(double[] a) {
+		sort(a, 0, a.length-1);
+	}
+
+	public static void sort(double[] a, int start, int end) {
+		if (end <= start) return;
+		Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, Partition.AUTO);
+	}
+
+	public static void sort(double[] a, Partition mode) {
+		sort(a, mode, Pivot.SHUFFLE);
+	}
+
+	public static void sort(double[] a, Partition mode, Pivot pivot) {
+		sort(a, 0, a.length-1, mode, pivot);
+	}
+
+	public static void sort(double[] a, int start, int end, Partition mode, Pivot pivot) {
+		if (end <= start) return;
+		if (pivot == Pivot.SHUFFLE) Knuth.shuffle(a, start, end);
+		quicksort(a, start, end, mode, pivot, depthLimit(end - start + 1));
+	}
+
+	/*
+	 * Selection : nthElement(a, start, end, k) puts in a[k] the key that would be there
+	 * if a[start..end] was sorted, lower or equal keys before it, greater or equal keys after.
+	 * Only the side of each partition holding k is kept, with a random pivot,
+	 * so it takes linear time on average. As for the sort, a range that is still not
+	 * solved after 4*lg(N) partitions is heapsorted, so the worst case is N*lg(N).
+	 * select returns the k-th smallest key (k from 0), partialSort leaves the k smallest
+	 * keys sorted in a[0..k-1] and the others in any order after them.
+	 */
+	public static void nthElement(Comparable[] a, int start, int end, int k) {
+		if (k < start || k > end) throw new IndexOutOfBoundsException("k is not in the range");
+		int depth = depthLimit(end - start + 1);
+		while (end > start) {
+			if (end - start <= 4) {
+				SortStats.cutoff();
+				Insertion.sort(a, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end);
+				return;
+			}
+			selectPivot(a, start, end, Pivot.RANDOM);
+			int j = partition(a, start, end);
+			if (j > k) end = j-1;
+			else if (j < k) start = j+1;
+			else return;
+		}
+	}
+
+	public static Comparable select(Comparable[] a, int k) {
+		nthElement(a, 0, a.length-1, k);
+		return a[k];
+	}
+
+	public static void partialSort(Comparable[] a, int k) {
+		if (k < 0 || k > a.length) throw new IndexOutOfBoundsException("k is not in the range");
+		if (k == 0) return;
+		nthElement(a, 0, a.length-1, k-1);
+		quicksort(a, 0, k-2, Partition.AUTO, Pivot.NINTHER, depthLimit(k-1));
+	}
+
+	public static <T> void nthElement(T[] a, int start, int end, int k, Comparator<? super T> c) {
+		if (k < start || k > end) throw new IndexOutOfBoundsException("k is not in the range");
+		int depth = depthLimit(end - start + 1);
+		while (end > start) {
+			if (end - start <= 4) {
+				SortStats.cutoff();
+				Insertion.sort(a, start, end, c);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end, c);
+				return;
+			}
+			selectPivot(a, start, end, Pivot.RANDOM, c);
+			int j = partition(a, start, end, c);
+			if (j > k) end = j-1;
+			else if (j < k) start = j+1;
+			else return;
+		}
+	}
+
+	public static <T> T select(T[] a, int k, Comparator<? super T> c) {
+		nthElement(a, 0, a.length-1, k, c);
+		return a[k];
+	}
+
+	public static <T> void partialSort(T[] a, int k, Comparator<? super T> c) {
+		if (k < 0 || k > a.length) throw new IndexOutOfBoundsException("k is not in the range");
+		if (k == 0) return;
+		nthElement(a, 0, a.length-1, k-1, c);
+		quicksort(a, 0, k-2, Partition.AUTO, Pivot.NINTHER, depthLimit(k-1), c);
+	}
+
+	public static void nthElement(int[] a, int start, int end, int k) {
+		if (k < start || k > end) throw new IndexOutOfBoundsException("k is not in the range");
+		int depth = depthLimit(end - start + 1);
+		while (end > start) {
+			if (end - start <= 4) {
+				SortStats.cutoff();
+				Insertion.sort(a, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end);
+				return;
+			}
+			selectPivot(a, start, end, Pivot.RANDOM);
+			int j = partition(a, start, end);
+			if (j > k) end = j-1;
+			else if (j < k) start = j+1;
+			else return;
+		}
+	}
+
+	public static int select(int[] a, int k) {
+		nthElement(a, 0, a.length-1, k);
+		return a[k];
+	}
+
+	public static void partialSort(int[] a, int k) {
+		if (k < 0 || k > a.length) throw new IndexOutOfBoundsException("k is not in the range");
+		if (k == 0) return;
+		nthElement(a, 0, a.length-1, k-1);
+		quicksort(a, 0, k-2, Partition.AUTO, Pivot.NINTHER, depthLimit(k-1));
+	}
+
+	public static void nthElement(long[] a, int start, int end, int k) {
+		if (k < start || k > end) throw new IndexOutOfBoundsException("k is not in the range");
+		int depth = depthLimit(end - start + 1);
+		while (end > start) {
+			if (end - start <= 4) {
+				SortStats.cutoff();
+				Insertion.sort(a, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end);
+				return;
+			}
+			selectPivot(a, start, end, Pivot.RANDOM);
+			int j = partition(a, start, end);
+			if (j > k) end = j-1;
+			else if (j < k) start = j+1;
+			else return;
+		}
+	}
+
+	public static long select(long[] a, int k) {
+		nthElement(a, 0, a.length-1, k);
+		return a[k];
+	}
+
+	public static void partialSort(long[] a, int k) {
+		if (k < 0 || k > a.length) throw new IndexOutOfBoundsException("k is not in the range");
+		if (k == 0) return;
+		nthElement(a, 0, a.length-1, k-1);
+		quicksort(a, 0, k-2, Partition.AUTO, Pivot.NINTHER, depthLimit(k-1));
+	}
+
+	public static void nthElement(double[] a, int start, int end, int k) {
+		if (k < start || k > end) throw new IndexOutOfBoundsException("k is not in the range");
+		int depth = depthLimit(end - start + 1);
+		while (end > start) {
+			if (end - start <= 4) {
+				SortStats.cutoff();
+				Insertion.sort(a, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end);
+				return;
+			}
+			selectPivot(a, start, end, Pivot.RANDOM);
+			int j = partition(a, start, end);
+			if (j > k) end = j-1;
+			else if (j < k) start = j+1;
+			else return;
+		}
+	}
+
+	public static double select(double[] a, int k) {
+		nthElement(a, 0, a.length-1, k);
+		return a[k];
+	}
+
+	public static void partialSort(double[] a, int k) {
+		if (k < 0 || k > a.length) throw new IndexOutOfBoundsException("k is not in the range");
+		if (k == 0) return;
+		nthElement(a, 0, a.length-1, k-1);
+		quicksort(a, 0, k-2, Partition.AUTO, Pivot.NINTHER, depthLimit(k-1));
+	}
 
-    private static int partition(Comparable[] a, int start, int end) {
+	/*
+	 * The recursion goes into the smaller side of the partition and loops on the larger one,
+	 * so the stack never holds more than lg(N) frames. After 4*lg(N) partitions of the same
+	 * subarray the pivots are assumed to be bad and the subarray is heapsorted instead,
+	 * which bounds the worst case to N*lg(N) whatever the shuffle or the comparator did.
+	 * Random pivots already take about 3*lg(N) partitions on the deepest path (the height
+	 * of a random binary search tree), so a budget of 4*lg(N) leaves heapsort to bad inputs.
+	 */
+	static int depthLimit(int N) {
+		return 4 * (31 - Integer.numberOfLeadingZeros(Math.max(N, 1)));
+	}
+
+	static void quicksort(Comparable[] a, int start, int end, Partition mode) {
+		quicksort(a, start, end, mode, Pivot.SHUFFLE, depthLimit(end - start + 1));
+	}
+
+	private static void quicksort(Comparable[] a, int start, int end, Partition mode, Pivot pivot, int depth) {
+		while (end > start) {
+			if (end - start <= 4) {
+				SortStats.cutoff();
+				Insertion.sort(a, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end);
+				return;
+			}
+			selectPivot(a, start, end, pivot);
+			int lo, hi;		// a[lo..hi] holds the pivot keys, now in their final place
+			if (mode == Partition.THREE_WAY || (mode == Partition.AUTO && duplicates(a, start, end))) {
+				int lt = start, i = start+1, gt = end;
+				Comparable v = a[start];
+				while (i <= gt) {
+					int cmp = compare(a[i], v);
+					if (cmp < 0) exch(a, lt++, i++);
+					else if (cmp > 0) exch(a, i, gt--);
+					else i++;
+				}
+				lo = lt;
+				hi = gt;
+			} else {
+				lo = hi = partition(a, start, end);
+			}
+			if (lo - start < end - hi) {
+				SortStats.enter();
+				quicksort(a, start, lo-1, mode, pivot, depth);
+				SortStats.exit();
+				start = hi+1;
+			} else {
+				SortStats.enter();
+				quicksort(a, hi+1, end, mode, pivot, depth);
+				SortStats.exit();
+				end = lo-1;
+			}
+		}
+	}
+
+	static <T> void quicksort(T[] a, int start, int end, Partition mode, Comparator<? super T> c) {
+		quicksort(a, start, end, mode, Pivot.SHUFFLE, depthLimit(end - start + 1), c);
+	}
+
+	private static <T> void quicksort(T[] a, int start, int end, Partition mode, Pivot pivot, int depth, Comparator<? super T> c) {
+		while (end > start) {
+			if (end - start <= 4) {
+				SortStats.cutoff();
+				Insertion.sort(a, start, end, c);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end, c);
+				return;
+			}
+			selectPivot(a, start, end, pivot, c);
+			int lo, hi;		// a[lo..hi] holds the pivot keys, now in their final place
+			if (mode == Partition.THREE_WAY || (mode == Partition.AUTO && duplicates(a, start, end, c))) {
+				int lt = start, i = start+1, gt = end;
+				T v = a[start];
+				while (i <= gt) {
+					int cmp = compare(c, a[i], v);
+					if (cmp < 0) exch(a, lt++, i++);
+					else if (cmp > 0) exch(a, i, gt--);
+					else i++;
+				}
+				lo = lt;
+				hi = gt;
+			} else {
+				lo = hi = partition(a, start, end, c);
+			}
+			if (lo - start < end - hi) {
+				SortStats.enter();
+				quicksort(a, start, lo-1, mode, pivot, depth, c);
+				SortStats.exit();
+				start = hi+1;
+			} else {
+				SortStats.enter();
+				quicksort(a, hi+1, end, mode, pivot, depth, c);
+				SortStats.exit();
+				end = lo-1;
+			}
+		}
+	}
+
+	static void quicksort(int[] a, int start, int end, Partition mode) {
+		quicksort(a, start, end, mode, Pivot.SHUFFLE, depthLimit(end - start + 1));
+	}
+
+	private static void quicksort(int[] a, int start, int end, Partition mode, Pivot pivot, int depth) {
+		while (end > start) {
+			if (end - start < SMALL) {
+				SortStats.cutoff();
+				if (NETWORK) Network.sort(a, start, end);
+				else Insertion.sort(a, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end);
+				return;
+			}
+			selectPivot(a, start, end, pivot);
+			int lo, hi;		// a[lo..hi] holds the pivot keys, now in their final place
+			if (mode == Partition.THREE_WAY || (mode == Partition.AUTO && duplicates(a, start, end))) {
+				int lt = start, i = start+1, gt = end;
+				int v = a[start];
+				while (i <= gt) {
+					if (a[i] < v) exch(a, lt++, i++);
+					else if (a[i] > v) exch(a, i, gt--);
+					else i++;
+				}
+				lo = lt;
+				hi = gt;
+			} else {
+				lo = hi = partition(a, start, end);
+			}
+			if (lo - start < end - hi) {
+				SortStats.enter();
+				quicksort(a, start, lo-1, mode, pivot, depth);
+				SortStats.exit();
+				start = hi+1;
+			} else {
+				SortStats.enter();
+				quicksort(a, hi+1, end, mode, pivot, depth);
+				SortStats.exit();
+				end = lo-1;
+			}
+		}
+	}
+
+	static void quicksort(long[] a, int start, int end, Partition mode) {
+		quicksort(a, start, end, mode, Pivot.SHUFFLE, depthLimit(end - start + 1));
+	}
+
+	private static void quicksort(long[] a, int start, int end, Partition mode, Pivot pivot, int depth) {
+		while (end > start) {
+			if (end - start < SMALL) {
+				SortStats.cutoff();
+				if (NETWORK) Network.sort(a, start, end);
+				else Insertion.sort(a, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end);
+				return;
+			}
+			selectPivot(a, start, end, pivot);
+			int lo, hi;		// a[lo..hi] holds the pivot keys, now in their final place
+			if (mode == Partition.THREE_WAY || (mode == Partition.AUTO && duplicates(a, start, end))) {
+				int lt = start, i = start+1, gt = end;
+				long v = a[start];
+				while (i <= gt) {
+					if (a[i] < v) exch(a, lt++, i++);
+					else if (a[i] > v) exch(a, i, gt--);
+					else i++;
+				}
+				lo = lt;
+				hi = gt;
+			} else {
+				lo = hi = partition(a, start, end);
+			}
+			if (lo - start < end - hi) {
+				SortStats.enter();
+				quicksort(a, start, lo-1, mode, pivot, depth);
+				SortStats.exit();
+				start = hi+1;
+			} else {
+				SortStats.enter();
+				quicksort(a, hi+1, end, mode, pivot, depth);
+				SortStats.exit();
+				end = lo-1;
+			}
+		}
+	}
+
+	static void quicksort(double[] a, int start, int end, Partition mode) {
+		quicksort(a, start, end, mode, Pivot.SHUFFLE, depthLimit(end - start + 1));
+	}
+
+	private static void quicksort(double[] a, int start, int end, Partition mode, Pivot pivot, int depth) {
+		while (end > start) {
+			if (end - start <= 4) {
+				SortStats.cutoff();
+				Insertion.sort(a, start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				SortStats.heapsort();
+				heapsort(a, start, end);
+				return;
+			}
+			selectPivot(a, start, end, pivot);
+			int lo, hi;		// a[lo..hi] holds the pivot keys, now in their final place
+			if (mode == Partition.THREE_WAY || (mode == Partition.AUTO && duplicates(a, start, end))) {
+				int lt = start, i = start+1, gt = end;
+				double v = a[start];
+				while (i <= gt) {
+					int cmp = Double.compare(a[i], v);
+					if (cmp < 0) exch(a, lt++, i++);
+					else if (cmp > 0) exch(a, i, gt--);
+					else i++;
+				}
+				lo = lt;
+				hi = gt;
+			} else {
+				lo = hi = partition(a, start, end);
+			}
+			if (lo - start < end - hi) {
+				SortStats.enter();
+				quicksort(a, start, lo-1, mode, pivot, depth);
+				SortStats.exit();
+				start = hi+1;
+			} else {
+				SortStats.enter();
+				quicksort(a, hi+1, end, mode, pivot, depth);
+				SortStats.exit();
+				end = lo-1;
+			}
+		}
+	}
+
+	/*
+	 * Heapsort of a[start..end] with a max heap, the sink is the one of MinPQ
+	 * with the order reversed. The heap is one-based : node k is a[start+k-1].
+	 */
+	static void heapsort(Comparable[] a, int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(a, start, k, N);
+		while (N > 1) {
+			exch(a, start, start+N-1);
+			sink(a, start, 1, --N);
+		}
+	}
+
+	private static void sink(Comparable[] a, int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && less(a, start+j-1, start+j)) j++;
+			if (!less(a, start+k-1, start+j-1)) break;
+			exch(a, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	static <T> void heapsort(T[] a, int start, int end, Comparator<? super T> c) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(a, start, k, N, c);
+		while (N > 1) {
+			exch(a, start, start+N-1);
+			sink(a, start, 1, --N, c);
+		}
+	}
+
+	private static <T> void sink(T[] a, int start, int k, int N, Comparator<? super T> c) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && compare(c, a[start+j-1], a[start+j]) < 0) j++;
+			if (compare(c, a[start+k-1], a[start+j-1]) >= 0) break;
+			exch(a, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	static void heapsort(int[] a, int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(a, start, k, N);
+		while (N > 1) {
+			exch(a, start, start+N-1);
+			sink(a, start, 1, --N);
+		}
+	}
+
+	private static void sink(int[] a, int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && a[start+j-1] < a[start+j]) j++;
+			if (a[start+k-1] >= a[start+j-1]) break;
+			exch(a, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	static void heapsort(long[] a, int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(a, start, k, N);
+		while (N > 1) {
+			exch(a, start, start+N-1);
+			sink(a, start, 1, --N);
+		}
+	}
+
+	private static void sink(long[] a, int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && a[start+j-1] < a[start+j]) j++;
+			if (a[start+k-1] >= a[start+j-1]) break;
+			exch(a, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	static void heapsort(double[] a, int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(a, start, k, N);
+		while (N > 1) {
+			exch(a, start, start+N-1);
+			sink(a, start, 1, --N);
+		}
+	}
+
+	private static void sink(double[] a, int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && less(a[start+j-1], a[start+j])) j++;
+			if (!less(a[start+k-1], a[start+j-1])) break;
+			exch(a, start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+    static int partition(Comparable[] a, int start, int end) {
         int i = start;
         int j = end + 1;
         Comparable v = a[start];
@@ -48,24 +756,301 @@ public class Quick {
         return j;
     }
 
+    static <T> int partition(T[] a, int start, int end, Comparator<? super T> c) {
+    	int i = start;
+    	int j = end + 1;
+    	T v = a[start];
+    	while (true) {
+    		while (compare(c, a[++i], v) < 0)
+    			if (i == end) break;
+    		while (compare(c, v, a[--j]) < 0)
+    			if (j == start) break;
+    		if (i >= j) break;
+    		exch(a, i, j);
+    	}
+    	exch(a, start, j);
+    	return j;
+    }
+
+    private static int partition(int[] a, int start, int end) {
+    	int i = start;
+    	int j = end + 1;
+    	int v = a[start];
+    	while (true) {
+    		while (a[++i] < v)
+    			if (i == end) break;
+    		while (v < a[--j])
+    			if (j == start) break;
+    		if (i >= j) break;
+    		exch(a, i, j);
+    	}
+    	exch(a, start, j);
+    	return j;
+    }
+
+    private static int partition(long[] a, int start, int end) {
+    	int i = start;
+    	int j = end + 1;
+    	long v = a[start];
+    	while (true) {
+    		while (a[++i] < v)
+    			if (i == end) break;
+    		while (v < a[--j])
+    			if (j == start) break;
+    		if (i >= j) break;
+    		exch(a, i, j);
+    	}
+    	exch(a, start, j);
+    	return j;
+    }
+
+    private static int partition(double[] a, int start, int end) {
+    	int i = start;
+    	int j = end + 1;
+    	double v = a[start];
+    	while (true) {
+    		while (less(a[++i], v))
+    			if (i == end) break;
+    		while (less(v, a[--j]))
+    			if (j == start) break;
+    		if (i >= j) break;
+    		exch(a, i, j);
+    	}
+    	exch(a, start, j);
+    	return j;
+    }
+
+    /*
+     * Moves the pivot chosen by the strategy to a[start], where partition expects it
+     */
+    private static void selectPivot(Comparable[] a, int start, int end, Pivot pivot) {
+    	if (pivot == Pivot.SHUFFLE) return;
+    	int N = end - start + 1, m;
+    	if (pivot == Pivot.RANDOM) m = start + ThreadLocalRandom.current().nextInt(N);
+    	else if (pivot == Pivot.NINTHER && N > 40) {
+    		int eps = N/8, mid = start + N/2;
+    		m = median3(a, median3(a, start, start+eps, start+2*eps),
+    				median3(a, mid-eps, mid, mid+eps),
+    				median3(a, end-2*eps, end-eps, end));
+    	}
+    	else m = median3(a, start, start + N/2, end);
+    	exch(a, start, m);
+    }
+
+    private static int median3(Comparable[] a, int i, int j, int k) {
+    	return (less(a, i, j) ?
+    			(less(a, j, k) ? j : less(a, i, k) ? k : i) :
+    			(less(a, k, j) ? j : less(a, k, i) ? k : i));
+    }
+
+    private static <T> void selectPivot(T[] a, int start, int end, Pivot pivot, Comparator<? super T> c) {
+    	if (pivot == Pivot.SHUFFLE) return;
+    	int N = end - start + 1, m;
+    	if (pivot == Pivot.RANDOM) m = start + ThreadLocalRandom.current().nextInt(N);
+    	else if (pivot == Pivot.NINTHER && N > 40) {
+    		int eps = N/8, mid = start + N/2;
+    		m = median3(a, median3(a, start, start+eps, start+2*eps, c),
+    				median3(a, mid-eps, mid, mid+eps, c),
+    				median3(a, end-2*eps, end-eps, end, c), c);
+    	}
+    	else m = median3(a, start, start + N/2, end, c);
+    	exch(a, start, m);
+    }
+
+    private static <T> int median3(T[] a, int i, int j, int k, Comparator<? super T> c) {
+    	return (compare(c, a[i], a[j]) < 0 ?
+    			(compare(c, a[j], a[k]) < 0 ? j : compare(c, a[i], a[k]) < 0 ? k : i) :
+    			(compare(c, a[k], a[j]) < 0 ? j : compare(c, a[k], a[i]) < 0 ? k : i));
+    }
+
+    private static void selectPivot(int[] a, int start, int end, Pivot pivot) {
+    	if (pivot == Pivot.SHUFFLE) return;
+    	int N = end - start + 1, m;
+    	if (pivot == Pivot.RANDOM) m = start + ThreadLocalRandom.current().nextInt(N);
+    	else if (pivot == Pivot.NINTHER && N > 40) {
+    		int eps = N/8, mid = start + N/2;
+    		m = median3(a, median3(a, start, start+eps, start+2*eps),
+    				median3(a, mid-eps, mid, mid+eps),
+    				median3(a, end-2*eps, end-eps, end));
+    	}
+    	else m = median3(a, start, start + N/2, end);
+    	exch(a, start, m);
+    }
+
+    private static int median3(int[] a, int i, int j, int k) {
+    	return (a[i] < a[j] ?
+    			(a[j] < a[k] ? j : a[i] < a[k] ? k : i) :
+    			(a[k] < a[j] ? j : a[k] < a[i] ? k : i));
+    }
+
+    private static void selectPivot(long[] a, int start, int end, Pivot pivot) {
+    	if (pivot == Pivot.SHUFFLE) return;
+    	int N = end - start + 1, m;
+    	if (pivot == Pivot.RANDOM) m = start + ThreadLocalRandom.current().nextInt(N);
+    	else if (pivot == Pivot.NINTHER && N > 40) {
+    		int eps = N/8, mid = start + N/2;
+    		m = median3(a, median3(a, start, start+eps, start+2*eps),
+    				median3(a, mid-eps, mid, mid+eps),
+    				median3(a, end-2*eps, end-eps, end));
+    	}
+    	else m = median3(a, start, start + N/2, end);
+    	exch(a, start, m);
+    }
+
+    private static int median3(long[] a, int i, int j, int k) {
+    	return (a[i] < a[j] ?
+    			(a[j] < a[k] ? j : a[i] < a[k] ? k : i) :
+    			(a[k] < a[j] ? j : a[k] < a[i] ? k : i));
+    }
+
+    private static void selectPivot(double[] a, int start, int end, Pivot pivot) {
+    	if (pivot == Pivot.SHUFFLE) return;
+    	int N = end - start + 1, m;
+    	if (pivot == Pivot.RANDOM) m = start + ThreadLocalRandom.current().nextInt(N);
+    	else if (pivot == Pivot.NINTHER && N > 40) {
+    		int eps = N/8, mid = start + N/2;
+    		m = median3(a, median3(a, start, start+eps, start+2*eps),
+    				median3(a, mid-eps, mid, mid+eps),
+    				median3(a, end-2*eps, end-eps, end));
+    	}
+    	else m = median3(a, start, start + N/2, end);
+    	exch(a, start, m);
+    }
+
+    private static int median3(double[] a, int i, int j, int k) {
+    	return (less(a[i], a[j]) ?
+    			(less(a[j], a[k]) ? j : less(a[i], a[k]) ? k : i) :
+    			(less(a[k], a[j]) ? j : less(a[k], a[i]) ? k : i));
+    }
+
+    // does the sample a[start], a[mid], a[end] hold two equal keys ?
+    private static boolean duplicates(Comparable[] a, int start, int end) {
+    	int mid = start + (end - start)/2;
+    	return compare(a[start], a[mid]) == 0 || compare(a[mid], a[end]) == 0
+    			|| compare(a[start], a[end]) == 0;
+    }
+
+    private static <T> boolean duplicates(T[] a, int start, int end, Comparator<? super T> c) {
+    	int mid = start + (end - start)/2;
+    	return compare(c, a[start], a[mid]) == 0 || compare(c, a[mid], a[end]) == 0
+    			|| compare(c, a[start], a[end]) == 0;
+    }
+
+    private static boolean duplicates(int[] a, int start, int end) {
+    	int mid = start + (end - start)/2;
+    	return a[start] == a[mid] || a[mid] == a[end] || a[start] == a[end];
+    }
+
+    private static boolean duplicates(long[] a, int start, int end) {
+    	int mid = start + (end - start)/2;
+    	return a[start] == a[mid] || a[mid] == a[end] || a[start] == a[end];
+    }
+
+    private static boolean duplicates(double[] a, int start, int end) {
+    	int mid = start + (end - start)/2;
+    	return Double.compare(a[start], a[mid]) == 0 || Double.compare(a[mid], a[end]) == 0
+    			|| Double.compare(a[start], a[end]) == 0;
+    }
+
     private static boolean less(Comparable[] a, int b, int c) {
 	    if ( b < 0 || c < 0) return false;
-	    return (a[b].compareTo(a[c]) < 0);
+	    return (compare(a[b], a[c]) < 0);
     }
 
-    private static void exch (Comparable[] a, int b, int c) {
-	    Comparable temp = a[b];
+    private static int compare(Comparable v, Comparable w) {
+    	SortStats.compare();
+    	return v.compareTo(w);
+    }
+
+    private static <T> int compare(Comparator<? super T> c, T v, T w) {
+    	SortStats.compare();
+    	return c.compare(v, w);
+    }
+
+    private static boolean less(double v, double w) {
+    	return Double.compare(v, w) < 0;
+    }
+
+    private static void exch (Object[] a, int b, int c) {
+    	SortStats.exchange();
+	    Object temp = a[b];
 	    a[b] = a[c];
 	    a[c] = temp;
 	    temp = null;
     }
-    
+
+    private static void exch (int[] a, int b, int c) {
+    	SortStats.exchange();
+    	int temp = a[b];
+    	a[b] = a[c];
+    	a[c] = temp;
+    }
+
+    private static void exch (long[] a, int b, int c) {
+    	SortStats.exchange();
+    	long temp = a[b];
+    	a[b] = a[c];
+    	a[c] = temp;
+    }
+
+    private static void exch (double[] a, int b, int c) {
+    	SortStats.exchange();
+    	double temp = a[b];
+    	a[b] = a[c];
+    	a[c] = temp;
+    }
+
     public static void main(String[] args) {
-		Integer[] tab = new Integer[1000];
-		for (int i = 0 ; i < 1000 ; i++) {
-			tab[i] = (Integer) ((int) (Math.random()*5000));
+		int N = 5000000;
+		Integer[] boxed = new Integer[N];
+		int[] ints = new int[N];
+		long[] longs = new long[N];
+		for (int i = 0 ; i < N ; i++) {
+			ints[i] = (int) (Math.random()*Integer.MAX_VALUE);
+			longs[i] = ints[i];
+			boxed[i] = ints[i];
+		}
+		Chrono c = new Chrono();
+		Quick.sort(boxed);
+		System.out.println(N + " Integer[] : " + c.elapsedTime());
+		c.reset();
+		Quick.sort(ints);
+		System.out.println(N + " int[] : " + c.elapsedTime());
+		c.reset();
+		Quick.sort(longs);
+		System.out.println(N + " long[] : " + c.elapsedTime());
+		for (int i = 1 ; i < N ; i++) {
+			if (ints[i-1] > ints[i] || ints[i] != boxed[i]) System.out.println("Not sorted at " + i);
+		}
+		int[] few = new int[N];
+		for (Partition mode : Partition.values()) {
+			for (int i = 0 ; i < N ; i++) few[i] = (int) (Math.random()*10);
+			c.reset();
+			Quick.sort(few, mode);
+			System.out.println(N + " int[] with 10 distinct keys, " + mode + " : " + c.elapsedTime());
+		}
+		for (int i = 0 ; i < N ; i++) ints[i] = (int) (Math.random()*Integer.MAX_VALUE);
+		c.reset();
+		Quick.partialSort(ints, 1000);
+		System.out.println(N + " int[], 1000 smallest with partialSort : " + c.elapsedTime());
+		int[] nearly = new int[N];
+		for (Pivot pivot : Pivot.values()) {
+			for (int i = 0 ; i < N ; i++) nearly[i] = i;
+			for (int k = 0 ; k < N/100 ; k++) exch(nearly, (int) (Math.random()*N), (int) (Math.random()*N));
+			c.reset();
+			Quick.sort(nearly, Partition.AUTO, pivot);
+			System.out.println(N + " nearly sorted int[], " + pivot + " : " + c.elapsedTime());
 		}
-		Quick.sort(tab);
-		for (Integer i : tab) {System.out.println(i);}
 	}
+	/*5000000 Integer[] : 7.325
+5000000 int[] : 1.856
+5000000 long[] : 1.978
+5000000 int[] with 10 distinct keys, TWO_WAY : 1.164
+5000000 int[] with 10 distinct keys, THREE_WAY : 1.031
+5000000 int[] with 10 distinct keys, AUTO : 1.071
+5000000 int[], 1000 smallest with partialSort : 0.038
+5000000 nearly sorted int[], SHUFFLE : 1.711
+5000000 nearly sorted int[], MEDIAN_OF_3 : 0.251
+5000000 nearly sorted int[], NINTHER : 0.216
+5000000 nearly sorted int[], RANDOM : 0.338*/
 }
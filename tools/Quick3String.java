@@ -0,0 +1,151 @@
+package tools;
+
+/**
+ *  The Quick3String class sorts strings with a 3-way radix quicksort (multikey quicksort).
+ *
+ *  The strings are partitioned in 3 by their characters at depth d : less than, equal to and
+ *  greater than those of the pivot. The smaller and greater parts are sorted at the same depth,
+ *  the equal part at the next one, so characters of a shared prefix are looked at once per
+ *  partition instead of once per compareTo.
+ *
+ *  The characters d, d+1 and d+2 of every string are packed in a long[] parallel to the array,
+ *  17 bits each (the character + 1, 0 past the end of the string), so a partition reads a
+ *  sequential array of longs instead of following each reference into its String, and moves
+ *  3 characters deeper at once. The cache of a part is refreshed when the sort goes deeper.
+ *  The largest part is sorted in a loop and the two others by recursion, so the depth of the
+ *  stack is O(lg(N)) whatever the length of the shared prefixes.
+ *  Parts of less than CUTOFF strings go to an insertion sort on the cache and the strings.
+ *
+ *  The order is the one of String.compareTo. Extra space is one long per string.
+ */
+public final class Quick3String {
+	private static final int CUTOFF = 12;		//Under this size, a part goes to insertion
+	private static final int CHARS = 3;			//Characters packed in a long
+	private static final int BITS = 17;			//Bits of a packed character
+
+	// don't instantiate
+	private Quick3String() { }
+
+	/**
+	 * Sorts an array of strings in the order of String.compareTo
+	 * @param a the array to sort
+	 */
+	public static void sort(String[] a) {
+		long[] key = new long[a.length];
+		cache(a, key, 0, a.length-1, 0);
+		sort(a, key, 0, a.length-1, 0);
+	}
+
+	/*
+	 * Sorts a[lo..hi], whose strings all share their first d characters
+	 * and whose characters d..d+2 are in key[lo..hi].
+	 * The two smaller parts of a partition are sorted by recursion and the largest one
+	 * by the loop, so the stack grows by lg(N) at most, however long the shared prefixes.
+	 */
+	private static void sort(String[] a, long[] key, int lo, int hi, int d) {
+		while (hi - lo >= CUTOFF) {
+			exch(a, key, lo, median3(key, lo, lo + (hi - lo)/2, hi));
+			long v = key[lo];
+			int lt = lo, i = lo+1, gt = hi;
+			while (i <= gt) {
+				long k = key[i];
+				if (k < v) exch(a, key, lt++, i++);
+				else if (k > v) exch(a, key, i, gt--);
+				else i++;
+			}
+			boolean more = (v & ((1L << BITS) - 1)) != 0;	// the strings of a[lt..gt] go on after d+2
+			int less = lt - lo, equal = more ? gt - lt + 1 : 0, greater = hi - gt;
+			if (more && equal >= less && equal >= greater) {
+				sort(a, key, lo, lt-1, d);
+				sort(a, key, gt+1, hi, d);
+				cache(a, key, lt, gt, d + CHARS);
+				lo = lt;
+				hi = gt;
+				d += CHARS;
+			} else {
+				if (more) {
+					cache(a, key, lt, gt, d + CHARS);
+					sort(a, key, lt, gt, d + CHARS);
+				}
+				if (less >= greater) {
+					sort(a, key, gt+1, hi, d);
+					hi = lt-1;
+				} else {
+					sort(a, key, lo, lt-1, d);
+					lo = gt+1;
+				}
+			}
+		}
+		insertion(a, key, lo, hi, d);
+	}
+
+	/*
+	 * Packs the characters d..d+2 of a[lo..hi] into key[lo..hi]
+	 */
+	private static void cache(String[] a, long[] key, int lo, int hi, int d) {
+		for (int i = lo ; i <= hi ; i++) {
+			String s = a[i];
+			int n = s.length();
+			long k = 0;
+			for (int j = d ; j < d + CHARS ; j++) k = (k << BITS) | (j < n ? s.charAt(j) + 1 : 0);
+			key[i] = k;
+		}
+	}
+
+	private static void insertion(String[] a, long[] key, int lo, int hi, int d) {
+		for (int i = lo+1 ; i <= hi ; i++) {
+			for (int j = i ; j > lo && less(a, key, j, j-1, d) ; j--) exch(a, key, j, j-1);
+		}
+	}
+
+	private static boolean less(String[] a, long[] key, int i, int j, int d) {
+		if (key[i] != key[j]) return key[i] < key[j];
+		if ((key[i] & ((1L << BITS) - 1)) == 0) return false;
+		String v = a[i], w = a[j];
+		int n = Math.min(v.length(), w.length());
+		for (int k = d + CHARS ; k < n ; k++) {
+			if (v.charAt(k) != w.charAt(k)) return v.charAt(k) < w.charAt(k);
+		}
+		return v.length() < w.length();
+	}
+
+	private static int median3(long[] key, int i, int j, int k) {
+		return (key[i] < key[j] ?
+				(key[j] < key[k] ? j : key[i] < key[k] ? k : i) :
+				(key[k] < key[j] ? j : key[k] < key[i] ? k : i));
+	}
+
+	private static void exch(String[] a, long[] key, int i, int j) {
+		String s = a[i];
+		a[i] = a[j];
+		a[j] = s;
+		long k = key[i];
+		key[i] = key[j];
+		key[j] = k;
+	}
+
+	public static void main(String[] args) {
+		int N = 1000000;
+		String[] hosts = { "http://www.example.com/", "https://docs.example.org/", "http://static.example.net/" };
+		String[] ref = new String[N];
+		for (int i = 0 ; i < N ; i++) {
+			ref[i] = hosts[(int) (Math.random()*hosts.length)] + "users/" + (int) (Math.random()*1000)
+					+ "/files/" + Long.toString((long) (Math.random()*Long.MAX_VALUE), 36) + ".html";
+		}
+		String[] tab = ref.clone();
+		Chrono c = new Chrono();
+		Quick.sort(tab);
+		System.out.println(N + " URLs, Quick : " + c.elapsedTime());
+		tab = ref.clone();
+		c.reset();
+		Radix.sort(tab);
+		System.out.println(N + " URLs, Radix : " + c.elapsedTime());
+		tab = ref.clone();
+		c.reset();
+		Quick3String.sort(tab);
+		System.out.println(N + " URLs, Quick3String : " + c.elapsedTime());
+	}
+	/*1000000 URLs, Quick : 2.148
+1000000 URLs, Radix : 1.135
+1000000 URLs, Quick3String : 0.685*/
+}
@@ -0,0 +1,218 @@
+package tools;
+
+import java.util.Arrays;
+
+/**
+ *  The Radix class sorts integer and string keys by their digits instead of comparing them.
+ *
+ *  int[] and long[] use an LSD (least significant digit first) radix sort with 11-bit digits :
+ *  3 passes for an int, 6 for a long. The counts of every digit are computed in one
+ *  first pass over the array, then each pass is a stable distribution into a scratch array
+ *  of the same length. Passes where all the keys share the same digit are skipped.
+ *  The sign bit is flipped on the last digit, so negative keys come before positive ones.
+ *  It takes time proportional to N*passes and the scratch array can be given by
+ *  the caller to avoid allocating it on each sort.
+ *
+ *  String[] uses an MSD (most significant digit first) radix sort on the 256 extended ASCII
+ *  characters : the strings are distributed by their character at depth d, then each bucket
+ *  is sorted at depth d+1, the largest one in a loop so that long shared prefixes do not
+ *  deepen the stack. Buckets of less than CUTOFF strings go to Insertion.
+ *  A bucket holding a character above 255 is handed to Quick instead.
+ */
+public final class Radix {
+	private static final int BITS = 11;				//Bits of a digit for int and long keys
+	private static final int R = 1 << BITS;			//Number of values of a digit
+	private static final int MASK = R - 1;
+	private static final int CHARS = 256;			//Alphabet of the string sort
+	private static final int CUTOFF = 15;			//Under this size, a bucket goes to Insertion
+
+	// don't instantiate
+	private Radix() { }
+
+	/**
+	 * Sorts an array of int
+	 * @param a the array to sort
+	 */
+	public static void sort(int[] a) {
+		sort(a, new int[a.length]);
+	}
+
+	/**
+	 * Sorts an array of int using the given scratch array
+	 * @param a the array to sort
+	 * @param aux scratch array, at least as long as a, its content is overwritten
+	 * @throws java.lang.IllegalArgumentException if aux is shorter than a
+	 */
+	public static void sort(int[] a, int[] aux) {
+		int N = a.length;
+		if (aux.length < N) throw new IllegalArgumentException("Scratch array is too short");
+		if (N <= 1) return;
+		int passes = (32 + BITS - 1) / BITS;
+		int[][] count = new int[passes][R+1];
+		for (int i = 0 ; i < N ; i++) {
+			int v = a[i] ^ Integer.MIN_VALUE;
+			for (int p = 0 ; p < passes ; p++) count[p][((v >>> (p*BITS)) & MASK) + 1]++;
+		}
+		int[] from = a, to = aux;
+		for (int p = 0 ; p < passes ; p++) {
+			int[] cnt = count[p];
+			int shift = p*BITS;
+			if (cnt[((from[0] ^ Integer.MIN_VALUE) >>> shift & MASK) + 1] == N) continue;
+			for (int r = 0 ; r < R ; r++) cnt[r+1] += cnt[r];
+			for (int i = 0 ; i < N ; i++) {
+				int v = from[i];
+				to[cnt[(v ^ Integer.MIN_VALUE) >>> shift & MASK]++] = v;
+			}
+			int[] temp = from;
+			from = to;
+			to = temp;
+		}
+		if (from != a) System.arraycopy(from, 0, a, 0, N);
+	}
+
+	/**
+	 * Sorts an array of long
+	 * @param a the array to sort
+	 */
+	public static void sort(long[] a) {
+		sort(a, new long[a.length]);
+	}
+
+	/**
+	 * Sorts an array of long using the given scratch array
+	 * @param a the array to sort
+	 * @param aux scratch array, at least as long as a, its content is overwritten
+	 * @throws java.lang.IllegalArgumentException if aux is shorter than a
+	 */
+	public static void sort(long[] a, long[] aux) {
+		int N = a.length;
+		if (aux.length < N) throw new IllegalArgumentException("Scratch array is too short");
+		if (N <= 1) return;
+		int passes = (64 + BITS - 1) / BITS;
+		int[][] count = new int[passes][R+1];
+		for (int i = 0 ; i < N ; i++) {
+			long v = a[i] ^ Long.MIN_VALUE;
+			for (int p = 0 ; p < passes ; p++) count[p][(int) ((v >>> (p*BITS)) & MASK) + 1]++;
+		}
+		long[] from = a, to = aux;
+		for (int p = 0 ; p < passes ; p++) {
+			int[] cnt = count[p];
+			int shift = p*BITS;
+			if (cnt[(int) ((from[0] ^ Long.MIN_VALUE) >>> shift & MASK) + 1] == N) continue;
+			for (int r = 0 ; r < R ; r++) cnt[r+1] += cnt[r];
+			for (int i = 0 ; i < N ; i++) {
+				long v = from[i];
+				to[cnt[(int) ((v ^ Long.MIN_VALUE) >>> shift & MASK)]++] = v;
+			}
+			long[] temp = from;
+			from = to;
+			to = temp;
+		}
+		if (from != a) System.arraycopy(from, 0, a, 0, N);
+	}
+
+	/**
+	 * Sorts an array of strings in the order of String.compareTo
+	 * @param a the array to sort
+	 */
+	public static void sort(String[] a) {
+		sort(a, new String[a.length]);
+	}
+
+	/**
+	 * Sorts an array of strings using the given scratch array
+	 * @param a the array to sort
+	 * @param aux scratch array, at least as long as a, its content is overwritten
+	 * @throws java.lang.IllegalArgumentException if aux is shorter than a
+	 */
+	public static void sort(String[] a, String[] aux) {
+		if (aux.length < a.length) throw new IllegalArgumentException("Scratch array is too short");
+		msd(a, aux, 0, a.length-1, 0);
+	}
+
+	// character at depth d, -1 past the end of the string
+	private static int charAt(String s, int d) {
+		return d < s.length() ? s.charAt(d) : -1;
+	}
+
+	/*
+	 * Sorts a[lo..hi], whose strings all share their first d characters.
+	 * The largest bucket is sorted by the loop and the others by recursion,
+	 * so the stack grows by lg(N) at most, however long the shared prefixes.
+	 */
+	private static void msd(String[] a, String[] aux, int lo, int hi, int d) {
+		if (hi - lo < CUTOFF) {
+			Insertion.sort(a, lo, hi);
+			return;
+		}
+		int[] count = new int[CHARS+2];
+		while (hi - lo >= CUTOFF) {
+			Arrays.fill(count, 0);
+			for (int i = lo ; i <= hi ; i++) {
+				int c = charAt(a[i], d);
+				if (c >= CHARS) {
+					Quick.sort(a, lo, hi);
+					return;
+				}
+				count[c+2]++;
+			}
+			if (count[1] == hi - lo + 1) return;	// all the strings ended, they are equal
+			int largest = 0;
+			for (int c = 1 ; c < CHARS ; c++) if (count[c+2] > count[largest+2]) largest = c;
+			if (count[largest+2] == hi - lo + 1) {
+				d++;								// a single bucket, go straight to the next character
+				continue;
+			}
+			for (int r = 0 ; r < CHARS+1 ; r++) count[r+1] += count[r];
+			for (int i = lo ; i <= hi ; i++) aux[count[charAt(a[i], d) + 1]++] = a[i];
+			System.arraycopy(aux, 0, a, lo, hi - lo + 1);
+			// count[c+1] is now the end of the bucket of c, the strings ended at d are done
+			int base = lo;
+			for (int c = 0 ; c < CHARS ; c++) {
+				if (c != largest && count[c+1] - count[c] > 1) msd(a, aux, base + count[c], base + count[c+1] - 1, d+1);
+			}
+			lo = base + count[largest];
+			hi = base + count[largest+1] - 1;
+			d++;
+		}
+		Insertion.sort(a, lo, hi);
+	}
+
+	public static void main(String[] args) {
+		int N = 5000000;
+		int[] ints = new int[N], ref = new int[N], aux = new int[N];
+		for (int i = 0 ; i < N ; i++) ref[i] = (int) (Math.random()*Integer.MAX_VALUE) - Integer.MAX_VALUE/2;
+		System.arraycopy(ref, 0, ints, 0, N);
+		Chrono c = new Chrono();
+		Radix.sort(ints, aux);
+		System.out.println(N + " int[], Radix : " + c.elapsedTime());
+		System.arraycopy(ref, 0, ints, 0, N);
+		c.reset();
+		Quick.sort(ints);
+		System.out.println(N + " int[], Quick : " + c.elapsedTime());
+		long[] longs = new long[N];
+		for (int i = 0 ; i < N ; i++) longs[i] = (long) ((Math.random() - 0.5)*Long.MAX_VALUE);
+		long[] copy = longs.clone();
+		c.reset();
+		Radix.sort(longs);
+		System.out.println(N + " long[], Radix : " + c.elapsedTime());
+		c.reset();
+		Quick.sort(copy);
+		System.out.println(N + " long[], Quick : " + c.elapsedTime());
+		String[] strings = new String[N/5];
+		for (int i = 0 ; i < N/5 ; i++) strings[i] = Long.toString((long) (Math.random()*Long.MAX_VALUE), 36);
+		String[] scopy = strings.clone();
+		c.reset();
+		Radix.sort(strings);
+		System.out.println(N/5 + " String[], Radix : " + c.elapsedTime());
+		c.reset();
+		Quick.sort(scopy);
+		System.out.println(N/5 + " String[], Quick : " + c.elapsedTime());
+	}
+	/*5000000 int[], Radix : 0.224
+5000000 int[], Quick : 1.809
+5000000 long[], Radix : 0.502
+5000000 long[], Quick : 2.008
+1000000 String[], Radix : 0.48
+1000000 String[], Quick : 2.107*/
+}
@@ -0,0 +1,193 @@
+package tools;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ReadOnlyBufferException;
+
+/**
+ *  The RecordSort class sorts fixed-width binary records in place inside a ByteBuffer,
+ *  for instance a MappedByteBuffer over a file of structs, without turning them into objects.
+ *
+ *  The records fill the buffer from its position to its limit, each one recordSize bytes long.
+ *  Their key is the keyWidth bytes at keyOffset in the record, compared as unsigned bytes
+ *  from the first one to the last (like memcmp), 8 bytes at a time. Big-endian unsigned
+ *  integers, ASCII strings padded with zeroes or the keys built by a byte-comparable
+ *  encoding sort correctly ; a signed integer needs its sign bit flipped when written.
+ *
+ *  The sort is the one of Quick : median of 3 (ninther over 40 records) pivot, 2-way
+ *  partition that stops on equal keys, insertion on 5 records or less, recursion into
+ *  the smaller side and heapsort after 4*lg(N) partitions of the same subarray.
+ *  Two records are exchanged 8 bytes at a time, nothing is allocated per record.
+ *  It is not stable.
+ */
+public final class RecordSort {
+	private final ByteBuffer buf;		//Big-endian view of the records
+	private final int base;				//Index of the first record in buf
+	private final int size;				//Bytes of a record
+	private final int keyOffset;		//Offset of the key in a record
+	private final int keyWidth;			//Bytes of the key
+
+	private RecordSort(ByteBuffer buf, int base, int size, int keyOffset, int keyWidth) {
+		this.buf = buf;
+		this.base = base;
+		this.size = size;
+		this.keyOffset = keyOffset;
+		this.keyWidth = keyWidth;
+	}
+
+	/**
+	 * Sorts the records between the position and the limit of a buffer.
+	 * The position, limit and byte order of the buffer are left unchanged.
+	 * @param buf the buffer holding the records
+	 * @param recordSize the size of a record in bytes
+	 * @param keyOffset the offset of the key in a record
+	 * @param keyWidth the size of the key in bytes
+	 * @throws java.lang.IllegalArgumentException if recordSize is not positive, the key does not fit in
+	 * a record or the remaining bytes of the buffer are not a whole number of records
+	 * @throws java.nio.ReadOnlyBufferException if the buffer is read-only
+	 */
+	public static void sort(ByteBuffer buf, int recordSize, int keyOffset, int keyWidth) {
+		if (recordSize <= 0) throw new IllegalArgumentException("Record size should be positive");
+		if (keyOffset < 0 || keyWidth < 0 || keyOffset + keyWidth > recordSize)
+			throw new IllegalArgumentException("Key is not in the record");
+		if (buf.remaining() % recordSize != 0)
+			throw new IllegalArgumentException("Buffer does not hold a whole number of records");
+		if (buf.isReadOnly()) throw new ReadOnlyBufferException();
+		int N = buf.remaining() / recordSize;
+		RecordSort s = new RecordSort(buf.duplicate().order(ByteOrder.BIG_ENDIAN), buf.position(),
+				recordSize, keyOffset, keyWidth);
+		s.quicksort(0, N-1, Quick.depthLimit(N));
+	}
+
+	private void quicksort(int start, int end, int depth) {
+		while (end > start) {
+			if (end - start <= 4) {
+				insertion(start, end);
+				return;
+			}
+			if (depth-- == 0) {
+				heapsort(start, end);
+				return;
+			}
+			int N = end - start + 1, m;
+			if (N > 40) {
+				int eps = N/8, mid = start + N/2;
+				m = median3(median3(start, start+eps, start+2*eps),
+						median3(mid-eps, mid, mid+eps),
+						median3(end-2*eps, end-eps, end));
+			}
+			else m = median3(start, start + N/2, end);
+			exch(start, m);
+			int j = partition(start, end);
+			if (j - start < end - j) {
+				quicksort(start, j-1, depth);
+				start = j+1;
+			} else {
+				quicksort(j+1, end, depth);
+				end = j-1;
+			}
+		}
+	}
+
+	private int partition(int start, int end) {
+		int i = start;
+		int j = end + 1;
+		while (true) {
+			while (compare(++i, start) < 0)
+				if (i == end) break;
+			while (compare(start, --j) < 0)
+				if (j == start) break;
+			if (i >= j) break;
+			exch(i, j);
+		}
+		exch(start, j);
+		return j;
+	}
+
+	private void insertion(int start, int end) {
+		for (int i = start ; i < end ; i++) {
+			for (int j = i+1 ; j > start && compare(j, j-1) < 0 ; j--) exch(j, j-1);
+		}
+	}
+
+	private void heapsort(int start, int end) {
+		int N = end - start + 1;
+		for (int k = N/2; k >= 1; k--)
+			sink(start, k, N);
+		while (N > 1) {
+			exch(start, start+N-1);
+			sink(start, 1, --N);
+		}
+	}
+
+	private void sink(int start, int k, int N) {
+		while (2*k <= N) {
+			int j = 2*k;
+			if (j < N && compare(start+j-1, start+j) < 0) j++;
+			if (compare(start+k-1, start+j-1) >= 0) break;
+			exch(start+k-1, start+j-1);
+			k = j;
+		}
+	}
+
+	private int median3(int i, int j, int k) {
+		return (compare(i, j) < 0 ?
+				(compare(j, k) < 0 ? j : compare(i, k) < 0 ? k : i) :
+				(compare(k, j) < 0 ? j : compare(k, i) < 0 ? k : i));
+	}
+
+	/*
+	 * Compares the keys of records i and j as unsigned bytes
+	 */
+	private int compare(int i, int j) {
+		int p = base + i*size + keyOffset;
+		int q = base + j*size + keyOffset;
+		int k = 0;
+		for ( ; k + 8 <= keyWidth ; k += 8) {
+			long x = buf.getLong(p+k), y = buf.getLong(q+k);
+			if (x != y) return Long.compareUnsigned(x, y);
+		}
+		for ( ; k < keyWidth ; k++) {
+			int x = buf.get(p+k) & 0xFF, y = buf.get(q+k) & 0xFF;
+			if (x != y) return x - y;
+		}
+		return 0;
+	}
+
+	private void exch(int i, int j) {
+		int p = base + i*size;
+		int q = base + j*size;
+		int k = 0;
+		for ( ; k + 8 <= size ; k += 8) {
+			long temp = buf.getLong(p+k);
+			buf.putLong(p+k, buf.getLong(q+k));
+			buf.putLong(q+k, temp);
+		}
+		for ( ; k < size ; k++) {
+			byte temp = buf.get(p+k);
+			buf.put(p+k, buf.get(q+k));
+			buf.put(q+k, temp);
+		}
+	}
+
+	public static void main(String[] args) {
+		int N = 2000000, size = 32;
+		ByteBuffer buf = ByteBuffer.allocateDirect(N*size);
+		long[] keys = new long[N];
+		for (int i = 0 ; i < N ; i++) {
+			keys[i] = (long) (Math.random()*Long.MAX_VALUE);
+			buf.putLong(i*size + 8, keys[i]);
+			buf.putInt(i*size + 16, i);
+		}
+		Chrono c = new Chrono();
+		RecordSort.sort(buf, size, 8, 8);
+		System.out.println(N + " records of " + size + " bytes, RecordSort : " + c.elapsedTime());
+		c.reset();
+		Long[] boxed = new Long[N];
+		for (int i = 0 ; i < N ; i++) boxed[i] = keys[i];
+		Quick.sort(boxed);
+		System.out.println(N + " Long, Quick : " + c.elapsedTime());
+	}
+	/*2000000 records of 32 bytes, RecordSort : 0.744
+2000000 Long, Quick : 2.376*/
+}
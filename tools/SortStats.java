@@ -0,0 +1,146 @@
+package tools;
+
+/**
+ *  The SortStats class counts what Insertion and Quick do while sorting : compares,
+ *  exchanges, small subarrays handed to Insertion or Network, heapsort fallbacks and the
+ *  maximum depth of the recursion.
+ *
+ *  Counting is off unless the JVM is started with -Dtools.sortstats=true.
+ *  The switch is a static final field, so when it is off the JIT removes the calls
+ *  to the recording methods entirely and the sorts run at full speed.
+ *
+ *  Each thread has its own counters : reset them, run a sort, then read them.
+ *  A parallel sort records its work in the counters of the pool threads.
+ *  Compares are counted for Comparable and Comparator arrays only,
+ *  exchanges for every type.
+ */
+public final class SortStats {
+	/**
+	 * True when counting is on, read once from the tools.sortstats property
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("tools.sortstats");
+
+	private static final ThreadLocal<SortStats> CURRENT = new ThreadLocal<SortStats>() {
+		protected SortStats initialValue() {
+			return new SortStats();
+		}
+	};
+
+	private long compares;		//Calls to compareTo or compare
+	private long exchanges;		//Calls to exch
+	private long cutoffs;		//Small subarrays handed to Insertion or Network
+	private long heapsorts;		//Subarrays handed to heapsort after too many partitions
+	private int depth;			//Current number of nested recursive calls
+	private int maxDepth;		//Maximum of depth since the last reset
+
+	private SortStats() { }
+
+	/**
+	 * Counters of the current thread
+	 * @return the counters, updated by the next sorts of this thread
+	 */
+	public static SortStats current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Clears the counters of the current thread
+	 * @return the cleared counters
+	 */
+	public static SortStats reset() {
+		SortStats s = CURRENT.get();
+		s.compares = s.exchanges = s.cutoffs = s.heapsorts = 0;
+		s.depth = s.maxDepth = 0;
+		return s;
+	}
+
+	public long compares() {
+		return compares;
+	}
+
+	public long exchanges() {
+		return exchanges;
+	}
+
+	public long cutoffs() {
+		return cutoffs;
+	}
+
+	public long heapsorts() {
+		return heapsorts;
+	}
+
+	/**
+	 * Maximum number of nested recursive calls, 0 when the first call did not recurse
+	 * @return the maximum depth since the last reset
+	 */
+	public int maxDepth() {
+		return maxDepth;
+	}
+
+	public String toString() {
+		return compares + " compares, " + exchanges + " exchanges, " + cutoffs + " cutoffs, "
+				+ heapsorts + " heapsorts, depth " + maxDepth;
+	}
+
+	static void compare() {
+		if (ENABLED) CURRENT.get().compares++;
+	}
+
+	static void exchange() {
+		if (ENABLED) CURRENT.get().exchanges++;
+	}
+
+	static void cutoff() {
+		if (ENABLED) CURRENT.get().cutoffs++;
+	}
+
+	static void heapsort() {
+		if (ENABLED) CURRENT.get().heapsorts++;
+	}
+
+	static void enter() {
+		if (ENABLED) {
+			SortStats s = CURRENT.get();
+			if (++s.depth > s.maxDepth) s.maxDepth = s.depth;
+		}
+	}
+
+	static void exit() {
+		if (ENABLED) CURRENT.get().depth--;
+	}
+
+	public static void main(String[] args) {
+		if (!ENABLED) {
+			System.out.println("Run with -Dtools.sortstats=true to count");
+			return;
+		}
+		int N = 1000000;
+		Integer[] tab = new Integer[N];
+		for (int i = 0 ; i < N ; i++) tab[i] = (int) (Math.random()*Integer.MAX_VALUE);
+		Integer[] copy = tab.clone();
+		SortStats.reset();
+		Quick.sort(tab);
+		System.out.println(N + " random Integer, Quick : " + SortStats.current());
+		for (Quick.Partition mode : Quick.Partition.values()) {
+			for (int i = 0 ; i < N ; i++) tab[i] = (int) (Math.random()*10);
+			SortStats.reset();
+			Quick.sort(tab, mode);
+			System.out.println(N + " Integer with 10 keys, " + mode + " : " + SortStats.current());
+		}
+		Quick.sort(copy);
+		SortStats.reset();
+		Quick.sort(copy, Quick.Partition.AUTO, Quick.Pivot.NINTHER);
+		System.out.println(N + " sorted Integer, NINTHER : " + SortStats.current());
+		for (int i = 0 ; i < 2000 ; i++) copy[i] = (int) (Math.random()*Integer.MAX_VALUE);
+		SortStats.reset();
+		Insertion.sort(copy, 0, 1999);
+		System.out.println("2000 random Integer, Insertion : " + SortStats.current());
+	}
+	/*1000000 random Integer, Quick : 26063685 compares, 4719281 exchanges, 190344 cutoffs, 0 heapsorts, depth 11
+1000000 Integer with 10 keys, TWO_WAY : 19221671 compares, 7887918 exchanges, 221598 cutoffs, 0 heapsorts, depth 16
+1000000 Integer with 10 keys, THREE_WAY : 3501210 compares, 2501220 exchanges, 0 cutoffs, 0 heapsorts, depth 2
+1000000 Integer with 10 keys, AUTO : 4020518 compares, 1507669 exchanges, 0 cutoffs, 0 heapsorts, depth 3
+1000000 sorted Integer, NINTHER : 19987240 compares, 526234 exchanges, 261920 cutoffs, 0 heapsorts, depth 18
+2000 random Integer, Insertion : 991879 compares, 989884 exchanges, 0 cutoffs, 0 heapsorts, depth 0*/
+}
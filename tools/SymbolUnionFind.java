@@ -0,0 +1,176 @@
+package tools;
+
+import java.util.Arrays;
+
+/**
+ *  The SymbolUnionFind class is a union-find over keys of any type (strings, objects...)
+ *  that appear over time, without knowing their number in advance.
+ *
+ *  It works as LongUnionFind : the first time a key is seen, it gets the next site of a
+ *  growable UnionFind, and keys are found through an open-addressing hash table of ints
+ *  (site + 1, 0 for an empty slot) with linear probing, the keys being stored once, in
+ *  site order. Keys are compared with equals and hashed with hashCode, mixed so that
+ *  poor hash codes still spread. The table is kept at most half full.
+ *
+ *  Find, union and connected take amortized near-constant time, plus an expected constant
+ *  time per lookup. Adding a key takes amortized constant time.
+ */
+public class SymbolUnionFind<Key> {
+	private final UnionFind uf;		//Union-find over the sites
+	private Key[] keys;				//Key of each site
+	private int[] table;			//Site + 1 of the keys, by hash, 0 if empty
+	private int mask;				//table.length - 1
+
+	/**
+	 * Initializes an empty union-find
+	 */
+	public SymbolUnionFind() {
+		this(16);
+	}
+
+	/**
+	 * Initializes an empty union-find
+	 * @param capacity number of keys expected, the structure grows beyond it
+	 * @throws java.lang.IllegalArgumentException if capacity < 0
+	 */
+	public SymbolUnionFind(int capacity) {
+		if (capacity < 0) throw new IllegalArgumentException("Capacity cannot be negative");
+		uf = new UnionFind(0, capacity);
+		keys = (Key[]) new Object[Math.max(capacity, 16)];
+		table = new int[Integer.highestOneBit(2*keys.length - 1) << 1];
+		mask = table.length - 1;
+	}
+
+	/**
+	 * Site of a key, a new one if the key was never seen
+	 * Amortized cost is O(1)
+	 * @param key a key
+	 * @return the site of key, between 0 and size()-1
+	 * @throws java.lang.IllegalArgumentException if key is null
+	 */
+	public int site(Key key) {
+		if (key == null) throw new IllegalArgumentException("Key cannot be null");
+		int i = hash(key) & mask;
+		for (int s = table[i] ; s != 0 ; s = table[i]) {
+			if (keys[s-1].equals(key)) return s-1;
+			i = (i + 1) & mask;
+		}
+		int s = uf.add();
+		if (s == keys.length) keys = Arrays.copyOf(keys, 2*s);
+		keys[s] = key;
+		table[i] = s+1;
+		if (2*(s+1) > table.length) resize();
+		return s;
+	}
+
+	/**
+	 * Whether a key was seen
+	 * @param key a key
+	 * @return true if key has a site
+	 * @throws java.lang.IllegalArgumentException if key is null
+	 */
+	public boolean contains(Key key) {
+		return lookup(key) >= 0;
+	}
+
+	/**
+	 * Representative of the component of a key, the key itself if it was never seen
+	 * @param key a key
+	 * @return the key at the root of the component of key
+	 * @throws java.lang.IllegalArgumentException if key is null
+	 */
+	public Key find(Key key) {
+		int s = lookup(key);
+		return s < 0 ? key : keys[uf.find(s)];
+	}
+
+	/**
+	 * Whether two keys are in the same component
+	 * @param p a key
+	 * @param q a key
+	 * @return true if p and q are connected
+	 * @throws java.lang.IllegalArgumentException if p or q is null
+	 */
+	public boolean connected(Key p, Key q) {
+		int i = lookup(p), j = lookup(q);
+		if (p.equals(q)) return true;
+		return i >= 0 && j >= 0 && uf.connected(i, j);
+	}
+
+	/**
+	 * Merges the components of two keys, adding them if they were never seen
+	 * @param p a key
+	 * @param q a key
+	 * @return true if p and q were in different components
+	 * @throws java.lang.IllegalArgumentException if p or q is null
+	 */
+	public boolean union(Key p, Key q) {
+		return uf.union(site(p), site(q));
+	}
+
+	/**
+	 * Number of keys in the component of a key
+	 * @param key a key
+	 * @return the size of the component of key, 1 if it was never seen
+	 * @throws java.lang.IllegalArgumentException if key is null
+	 */
+	public int componentSize(Key key) {
+		int s = lookup(key);
+		return s < 0 ? 1 : uf.componentSize(s);
+	}
+
+	/**
+	 * Number of components among the keys seen
+	 * @return the number of components
+	 */
+	public int count() {
+		return uf.count();
+	}
+
+	/**
+	 * Number of keys seen
+	 * @return the number of keys
+	 */
+	public int size() {
+		return uf.size();
+	}
+
+	// site of key, -1 if it was never seen
+	private int lookup(Key key) {
+		if (key == null) throw new IllegalArgumentException("Key cannot be null");
+		int i = hash(key) & mask;
+		for (int s = table[i] ; s != 0 ; s = table[i]) {
+			if (keys[s-1].equals(key)) return s-1;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	private void resize() {
+		table = new int[2*table.length];
+		mask = table.length - 1;
+		for (int s = 0 ; s < uf.size() ; s++) {
+			int i = hash(keys[s]) & mask;
+			while (table[i] != 0) i = (i + 1) & mask;
+			table[i] = s+1;
+		}
+	}
+
+	private static int hash(Object key) {
+		int h = key.hashCode() * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	public static void main(String[] args) {
+		int N = 2000000;
+		int M = 4000000;
+		String[] names = new String[N];
+		for (int i = 0 ; i < N ; i++) names[i] = "user-" + Long.toString((long) (Math.random()*Long.MAX_VALUE), 36);
+		Chrono c = new Chrono();
+		SymbolUnionFind<String> suf = new SymbolUnionFind<String>();
+		for (int k = 0 ; k < M ; k++) suf.union(names[(int) (Math.random()*N)], names[(int) (Math.random()*N)]);
+		System.out.println(M + " unions of " + suf.size() + " String keys : " + c.elapsedTime()
+				+ ", " + suf.count() + " components");
+	}
+	/*4000000 unions of 1963177 String keys : 6.135, 1422 components*/
+}
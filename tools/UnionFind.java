@@ -0,0 +1,155 @@
+package tools;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ *  The UnionFind class keeps the connected components of N sites, numbered from 0 to N-1,
+ *  as unions of pairs of sites are added.
+ *
+ *  It is the weighted quick-union of QuickP, as a class : each component is a tree in id[],
+ *  whose root is the representative of the component, and a union hangs the root of the
+ *  smaller tree under the root of the larger one, sz[] holding the size of each tree.
+ *  find halves the path it walks, every node pointing to its grandparent, which keeps the
+ *  trees nearly flat in one pass and without recursion.
+ *
+ *  Sites can be added after construction, the arrays doubling when full.
+ *
+ *  Find, union and connected take amortized time proportional to the inverse Ackermann
+ *  function of N, practically constant. Count and componentSize take constant time after a find.
+ *  Add takes amortized constant time. Construction takes time proportional to N.
+ */
+public class UnionFind {
+	private int[] id;			//Parent of each site, id[i] == i for a root
+	private int[] sz;			//Size of the tree rooted at each root
+	private int n;				//Number of sites
+	private int count;			//Number of components
+
+	/**
+	 * Initializes N sites, each in its own component
+	 * Worst case is O(N)
+	 * @param N the number of sites
+	 * @throws java.lang.IllegalArgumentException if N < 0
+	 */
+	public UnionFind(int N) {
+		this(N, N);
+	}
+
+	/**
+	 * Initializes N sites, each in its own component, with room for sites added later
+	 * Worst case is O(capacity)
+	 * @param N the number of sites
+	 * @param capacity the number of sites the arrays hold before growing, N at least
+	 * @throws java.lang.IllegalArgumentException if N < 0
+	 */
+	public UnionFind(int N, int capacity) {
+		if (N < 0) throw new IllegalArgumentException("Number of sites cannot be negative");
+		id = new int[Math.max(N, capacity)];
+		sz = new int[id.length];
+		for (int i = 0 ; i < N ; id[i] = i, sz[i++] = 1);
+		n = N;
+		count = N;
+	}
+
+	/**
+	 * Adds a site in its own component
+	 * Amortized cost is O(1)
+	 * @return the new site, numbered N before the call
+	 */
+	public int add() {
+		if (n == id.length) {
+			id = Arrays.copyOf(id, Math.max(2*n, 16));
+			sz = Arrays.copyOf(sz, id.length);
+		}
+		id[n] = n;
+		sz[n] = 1;
+		count++;
+		return n++;
+	}
+
+	/**
+	 * Representative of the component of a site
+	 * @param p a site
+	 * @return the root of the component of p
+	 * @throws java.lang.IndexOutOfBoundsException if p is not between 0 and N-1
+	 */
+	public int find(int p) {
+		if (p >= n) throw new IndexOutOfBoundsException("Site " + p + " does not exist");
+		while (p != id[p]) {
+			id[p] = id[id[p]];
+			p = id[p];
+		}
+		return p;
+	}
+
+	/**
+	 * Whether two sites are in the same component
+	 * @param p a site
+	 * @param q a site
+	 * @return true if p and q are connected
+	 * @throws java.lang.IndexOutOfBoundsException if p or q is not between 0 and N-1
+	 */
+	public boolean connected(int p, int q) {
+		return find(p) == find(q);
+	}
+
+	/**
+	 * Merges the components of two sites
+	 * @param p a site
+	 * @param q a site
+	 * @return true if p and q were in different components
+	 * @throws java.lang.IndexOutOfBoundsException if p or q is not between 0 and N-1
+	 */
+	public boolean union(int p, int q) {
+		int i = find(p), j = find(q);
+		if (i == j) return false;
+		if (sz[i] < sz[j]) {
+			id[i] = j;
+			sz[j] += sz[i];
+		} else {
+			id[j] = i;
+			sz[i] += sz[j];
+		}
+		count--;
+		return true;
+	}
+
+	/**
+	 * Number of components
+	 * Worst case is O(1)
+	 * @return the number of components
+	 */
+	public int count() {
+		return count;
+	}
+
+	/**
+	 * Number of sites in the component of a site
+	 * @param p a site
+	 * @return the size of the component of p
+	 * @throws java.lang.IndexOutOfBoundsException if p is not between 0 and N-1
+	 */
+	public int componentSize(int p) {
+		return sz[find(p)];
+	}
+
+	/**
+	 * Number of sites
+	 * @return the number of sites, N plus the sites added
+	 */
+	public int size() {
+		return n;
+	}
+
+	public static void main(String[] args) {
+		int N = 10000000;
+		long M = 100000000;
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Chrono c = new Chrono();
+		UnionFind uf = new UnionFind(N);
+		for (long k = 0 ; k < M ; k++) uf.union(random.nextInt(N), random.nextInt(N));
+		System.out.println(M + " unions on " + N + " sites : " + c.elapsedTime()
+				+ ", " + uf.count() + " components, " + uf.componentSize(0) + " sites connected to 0");
+	}
+	/*100000000 unions on 10000000 sites : 9.699, 1 components, 10000000 sites connected to 0*/
+}